@@ -20,7 +20,41 @@ dependencies {
 }
 
 tasks.test {
-    useJUnitPlatform()
+    useJUnitPlatform {
+        excludeTags("performance")
+    }
+}
+
+// Performance regression harness, see SaturatorPerformanceTest. Settings are passed as
+// project properties, e.g. -Pperformance.baseline=<file> -Pperformance.threshold=1.25
+val performanceTest by tasks.registering(Test::class) {
+    description = "Compares the saturator time and allocation against a baseline."
+    group = "verification"
+
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+
+    useJUnitPlatform {
+        includeTags("performance")
+    }
+
+    shouldRunAfter(tasks.test)
+    outputs.upToDateWhen { false }
+    maxHeapSize = "4g"
+
+    systemProperty("ontosat.performance.baseline",
+        findProperty("performance.baseline") ?: layout.projectDirectory.file("src/test/resources/performance/baseline.csv").asFile.path)
+    systemProperty("ontosat.performance.report",
+        layout.buildDirectory.file("performance/report.csv").get().asFile.path)
+
+    listOf("update", "threshold", "warmups", "iterations", "scales").forEach { name ->
+        findProperty("performance.$name")?.let { systemProperty("ontosat.performance.$name", it) }
+    }
+
+    testLogging {
+        events("passed", "failed")
+        showStandardStreams = false
+    }
 }
 
 tasks.jar {
@@ -1,12 +1,23 @@
 package br.usp.ime.ontosat;
 
+import br.usp.ime.ontosat.utils.ManchesterSyntaxLoader;
 import br.usp.ime.ontosat.utils.OntologyHelper;
 import org.apache.commons.io.FilenameUtils;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLIndividual;
 import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 //TIP To <b>Run</b> code, press <shortcut actionId="Run"/> or
 // click the <icon src="AllIcons.Actions.Execute"/> icon in the gutter.
@@ -20,16 +31,27 @@ public class Main {
 
     private static Saturator.SaturationMode saturationMode = Saturator.SaturationMode.Assertional;
 
+    private static boolean customSaturationMode = false;
+
     private static File ontologyFile;
 
     private static String saturatedOntologyPath = System.getProperty("user.home") + "\\Desktop\\";
 
     private static boolean customOutputPath = false;
 
+    private static File snapshotFile;
+
+    private static File saveSnapshotFile;
+
+    private static File assertionsFile;
+
+    private static boolean inferredOnly = false;
+
     private enum Command {
         NoCommand,
         Help,
-        Saturate
+        Saturate,
+        Estimate
     };
 
     // endregion
@@ -52,6 +74,7 @@ public class Main {
         switch (command) {
             case NoCommand, Help -> help();
             case Saturate -> saturate();
+            case Estimate -> estimate();
         }
     }
 
@@ -76,13 +99,19 @@ public class Main {
             while(i < args.length) {
                 switch (args[i++]) {
                     case "-h", "--help" -> command = Command.Help;
+                    case "-e", "--estimate" -> command = Command.Estimate;
                     case "-i", "--ontology" -> ontologyFile = new File(args[i++]);
                     case "-o", "--saturated-ontology" -> {
                         saturatedOntologyPath = args[i++];
                         customOutputPath = true;
                     }
+                    case "-a", "--assertions" -> assertionsFile = new File(args[i++]);
+                    case "-l", "--load-snapshot" -> snapshotFile = new File(args[i++]);
+                    case "-s", "--save-snapshot" -> saveSnapshotFile = new File(args[i++]);
+                    case "-x", "--inferred-only" -> inferredOnly = true;
                     case "-m", "--mode" -> {
                         String mode = args[i++];
+                        customSaturationMode = true;
                         if (mode.equals("assertional")) {
                             saturationMode = Saturator.SaturationMode.Assertional;
                         } else if (mode.equals("terminological")) {
@@ -94,7 +123,18 @@ public class Main {
                 }
             }
 
-            if(command == Command.Saturate && ontologyFile == null) {
+            // the snapshot holds the graph and the mode it was saved with, while the
+            // ontology, and the assertions added to it, are still needed for their axioms
+            if (snapshotFile != null && customSaturationMode) {
+                throw new Exception("The saturation mode cannot be changed when loading a snapshot");
+            }
+
+            // the estimate counts the class assertions of the assertional mode
+            if (command == Command.Estimate && saturationMode == Saturator.SaturationMode.Terminological) {
+                throw new Exception("The estimate is only available for the assertional mode");
+            }
+
+            if((command == Command.Saturate || command == Command.Estimate) && ontologyFile == null) {
                 System.out.println("Missing arguments.");
                 logger.error("Missing arguments.");
 
@@ -119,8 +159,21 @@ public class Main {
         logger.info("Starting saturation...");
 
         try {
-            Saturator saturator = new Saturator(ontologyFile, saturationMode);
-            OWLOntology saturatedOntology = saturator.saturate();
+            Saturator saturator = createSaturator();
+            OWLOntology saturatedOntology;
+
+            if (inferredOnly) {
+                Set<OWLAxiom> inferredAxioms = saturator.infer();
+
+                saturatedOntology = OWLManager.createOWLOntologyManager().createOntology();
+                saturatedOntology.getOWLOntologyManager().addAxioms(saturatedOntology, inferredAxioms);
+            } else {
+                saturatedOntology = saturator.saturate();
+            }
+
+            if (saveSnapshotFile != null) {
+                saturator.saveSnapshot(saveSnapshotFile, getSourceFiles());
+            }
 
             logger.info("Saving ontology...");
 
@@ -138,6 +191,102 @@ public class Main {
         }
     }
 
+    /**
+     * @return The files the ontology is parsed from, which a snapshot is checked against
+     */
+    private static List<File> getSourceFiles() {
+        List<File> sourceFiles = new ArrayList<>();
+        sourceFiles.add(ontologyFile);
+
+        if (assertionsFile != null) {
+            sourceFiles.add(assertionsFile);
+        }
+        return sourceFiles;
+    }
+
+    private static Saturator createSaturator() throws IOException, OWLOntologyCreationException {
+        // only the inferred axioms are written, so the ontology is not parsed at all
+        if (snapshotFile != null && inferredOnly) {
+            return Saturator.loadSnapshot(snapshotFile, getSourceFiles(), null);
+        }
+
+        if (snapshotFile == null && assertionsFile == null) {
+            return new Saturator(ontologyFile, saturationMode);
+        }
+
+        OWLOntology ontology = OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(ontologyFile);
+
+        // the assertions are added to the loaded ontology, without an intermediate file
+        if (assertionsFile != null) {
+            addAssertions(ontology, assertionsFile);
+        }
+
+        // the snapshot is checked against the bytes of the ontology and assertions files
+        if (snapshotFile != null) {
+            return Saturator.loadSnapshot(snapshotFile, getSourceFiles(), ontology);
+        }
+
+        return new Saturator(ontology, saturationMode);
+    }
+
+    /**
+     * Adds the axioms of the assertions file to the ontology, reporting each invalid line
+     * @throws IOException If the file cannot be read or has invalid lines. The valid
+     * axioms are still added to the ontology, which must not be saturated then.
+     */
+    static void addAssertions(OWLOntology ontology, File assertionsFile) throws IOException {
+        ManchesterSyntaxLoader.LoadResult result = new ManchesterSyntaxLoader(ontology).loadInto(assertionsFile);
+
+        for (ManchesterSyntaxLoader.ParseError error : result.getErrors()) {
+            System.out.println("Invalid axiom at line " + error.getLineNumber() + ": " + error.getLine());
+            logger.error("Invalid axiom at line " + error.getLineNumber() + ": " + error.getMessage());
+        }
+
+        // saturating without them would silently write an incomplete ontology
+        if (result.hasErrors()) {
+            throw new IOException(result.getErrors().size() + " invalid axioms in " + assertionsFile.getPath());
+        }
+    }
+
+    private static void estimate() {
+        System.out.println("Running estimator...");
+        logger.info("Starting estimation...");
+
+        try {
+            Saturator saturator = createSaturator();
+            SaturationEstimate estimate = saturator.estimate();
+
+            String bound = estimate.isExact() ? "" : " (upper bound)";
+
+            System.out.println();
+            System.out.println("Derived axioms" + bound + ": " + estimate.getTotalAxioms());
+            System.out.println("Existential restrictions" + bound + ": " + estimate.getTotalRestrictions());
+            System.out.println("Maximum nesting depth: " + estimate.getMaxDepth());
+
+            System.out.println();
+            System.out.println("Individuals with most derived axioms:");
+            estimate.getAxiomsPerIndividual().entrySet().stream()
+                    .sorted(Map.Entry.<OWLIndividual, Long>comparingByValue(Comparator.reverseOrder()))
+                    .limit(10)
+                    .forEach(entry -> System.out.println("    " + entry.getKey() + ": " + entry.getValue()));
+
+            System.out.println();
+            System.out.println("Cyclic components: " + estimate.getComponents().size());
+            estimate.getComponents().stream()
+                    .limit(10)
+                    .forEach(component -> System.out.println("    " + component.getRepresentative()
+                            + " (individuals: " + component.getSize()
+                            + ", edges: " + component.getEdges()
+                            + ", axioms: " + component.getAxioms()
+                            + ", depth: " + component.getMaxDepth() + ")"));
+        } catch (Exception e) {
+            System.out.println("Error while estimating.");
+
+            logger.error("Error while estimating.");
+            logger.debug("Exception caught: " + e.getMessage());
+        }
+    }
+
     private static void help() {
         System.out.println("Usage: java -cp ontosat.jar [options]");
         System.out.println();
@@ -148,9 +297,19 @@ public class Main {
         System.out.println("                   <specifies the path to the input ontology>");
         System.out.println("    -o --saturated-ontology");
         System.out.println("                   <specifies the path where the saturated ontology will be stored>");
+        System.out.println("    -a --assertions");
+        System.out.println("                   <specifies a file with Manchester Syntax axioms, one per line, to be added to the input ontology>");
         System.out.println("    -m --mode");
         System.out.println("                   defines the saturation mode, which can be either \"assertional\" or");
         System.out.println("                   \"terminological\". The \"assertional\" mode is selected by default");
+        System.out.println("    -e --estimate");
+        System.out.println("                   estimates the size of the saturation without saturating the ontology");
+        System.out.println("    -s --save-snapshot");
+        System.out.println("                   <specifies the path where the binary snapshot of the saturator will be stored>");
+        System.out.println("    -l --load-snapshot");
+        System.out.println("                   <specifies the path to a snapshot of the input ontology to be loaded instead of building the graph>");
+        System.out.println("    -x --inferred-only");
+        System.out.println("                   stores only the inferred axioms, so a snapshot is loaded without parsing the input ontology");
     }
 
     // endregion
@@ -0,0 +1,231 @@
+package br.usp.ime.ontosat;
+
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.model.parameters.Imports;
+
+import java.util.*;
+
+/**
+ * Precomputed role hierarchy with inverse closure. <br/>
+ *
+ * Every named property <b>r</b> gives two nodes, <b>r</b> and <b>inverse(r)</b>,
+ * related by the sub-property, equivalent, inverse and symmetric property axioms
+ * of the ontology and of its imports. For each property the reflexive transitive closure is kept as
+ * a bitset over these nodes: bit <b>2j</b> means that <b>r(x,y)</b> implies
+ * <b>s(x,y)</b> and bit <b>2j+1</b> means that it implies <b>s(y,x)</b>, where
+ * <b>s</b> is the property of index <b>j</b>.
+ */
+final class RoleIndex {
+
+    // region attributes
+
+    /**
+     * The indexed properties. The bits of the closures refer to their positions.
+     */
+    final List<OWLObjectProperty> properties;
+
+    final BitSet[] closures;
+
+    private final Map<OWLObjectProperty, Integer> ids = new HashMap<>();
+
+    /**
+     * Whether no property implies another one, in which case every edge keeps
+     * exactly its asserted properties
+     */
+    private final boolean trivial;
+
+    private final boolean inverses;
+
+    private final Map<Set<OWLObjectProperty>, Set<OWLObjectProperty>> impliedProperties = new HashMap<>();
+
+    private final Map<Set<OWLObjectProperty>, Set<OWLObjectProperty>> impliedInverseProperties = new HashMap<>();
+
+    // endregion
+
+    RoleIndex(List<OWLObjectProperty> properties, BitSet[] closures) {
+        this.properties = properties;
+        this.closures = closures;
+
+        boolean trivial = true;
+        boolean inverses = false;
+
+        for (int i = 0; i < properties.size(); i++) {
+            ids.put(properties.get(i), i);
+
+            BitSet closure = closures[i];
+            if (closure.cardinality() > 1 || !closure.get(2 * i)) {
+                trivial = false;
+            }
+            if (hasOddBit(closure)) {
+                inverses = true;
+            }
+        }
+
+        this.trivial = trivial;
+        this.inverses = inverses;
+    }
+
+    /**
+     * Creates the role index from the object property axioms of the imports closure
+     * @param ontology The ontology whose role hierarchy is indexed
+     * @return The role index
+     */
+    static RoleIndex create(OWLOntology ontology) {
+        List<OWLObjectProperty> properties = new ArrayList<>(ontology.getObjectPropertiesInSignature(Imports.INCLUDED));
+        Map<OWLObjectProperty, Integer> ids = new HashMap<>();
+        for (OWLObjectProperty property : properties) {
+            ids.put(property, ids.size());
+        }
+
+        List<List<Integer>> implications = new ArrayList<>();
+        for (int i = 0; i < 2 * properties.size(); i++) {
+            implications.add(new ArrayList<>());
+        }
+
+        for (OWLSubObjectPropertyOfAxiom axiom : ontology.getAxioms(AxiomType.SUB_OBJECT_PROPERTY, Imports.INCLUDED)) {
+            addImplication(implications, node(ids, axiom.getSubProperty()), node(ids, axiom.getSuperProperty()));
+        }
+
+        for (OWLEquivalentObjectPropertiesAxiom axiom : ontology.getAxioms(AxiomType.EQUIVALENT_OBJECT_PROPERTIES, Imports.INCLUDED)) {
+            for (OWLObjectPropertyExpression first : axiom.getProperties()) {
+                for (OWLObjectPropertyExpression second : axiom.getProperties()) {
+                    addImplication(implications, node(ids, first), node(ids, second));
+                }
+            }
+        }
+
+        for (OWLInverseObjectPropertiesAxiom axiom : ontology.getAxioms(AxiomType.INVERSE_OBJECT_PROPERTIES, Imports.INCLUDED)) {
+            // r inverse of s is the same as r equivalent to inverse(s)
+            int first = node(ids, axiom.getFirstProperty());
+            int second = node(ids, axiom.getSecondProperty()) ^ 1;
+
+            addImplication(implications, first, second);
+            addImplication(implications, second, first);
+        }
+
+        for (OWLSymmetricObjectPropertyAxiom axiom : ontology.getAxioms(AxiomType.SYMMETRIC_OBJECT_PROPERTY, Imports.INCLUDED)) {
+            int node = node(ids, axiom.getProperty());
+            addImplication(implications, node, node ^ 1);
+        }
+
+        BitSet[] closures = new BitSet[properties.size()];
+        for (int i = 0; i < properties.size(); i++) {
+            closures[i] = reach(implications, 2 * i);
+        }
+
+        return new RoleIndex(properties, closures);
+    }
+
+    // region package methods
+
+    boolean isTrivial() {
+        return trivial;
+    }
+
+    /**
+     * @return Whether any property implies an inverse role
+     */
+    boolean hasInverses() {
+        return inverses;
+    }
+
+    /**
+     * @return Whether the property implies an inverse role
+     */
+    boolean hasInverse(OWLObjectProperty property) {
+        Integer id = ids.get(property);
+        return id != null && hasOddBit(closures[id]);
+    }
+
+    /**
+     * @param asserted The properties of an edge <b>(x,y)</b>
+     * @return The properties <b>s</b> such that <b>s(x,y)</b> follows from the edge
+     */
+    Set<OWLObjectProperty> getImpliedProperties(Set<OWLObjectProperty> asserted) {
+        if (trivial) {
+            return asserted;
+        }
+        return impliedProperties.computeIfAbsent(asserted, k -> collect(asserted, 0));
+    }
+
+    /**
+     * @param asserted The properties of an edge <b>(x,y)</b>
+     * @return The properties <b>s</b> such that <b>s(y,x)</b> follows from the edge
+     */
+    Set<OWLObjectProperty> getImpliedInverseProperties(Set<OWLObjectProperty> asserted) {
+        if (!inverses) {
+            return Collections.emptySet();
+        }
+        return impliedInverseProperties.computeIfAbsent(asserted, k -> collect(asserted, 1));
+    }
+
+    // endregion
+
+    // region private methods
+
+    private Set<OWLObjectProperty> collect(Set<OWLObjectProperty> asserted, int direction) {
+        Set<OWLObjectProperty> implied = new HashSet<>();
+
+        for (OWLObjectProperty property : asserted) {
+            Integer id = ids.get(property);
+            if (id == null) {
+                // properties unknown to the index only imply themselves
+                if (direction == 0) {
+                    implied.add(property);
+                }
+                continue;
+            }
+
+            BitSet closure = closures[id];
+            for (int bit = closure.nextSetBit(0); bit >= 0; bit = closure.nextSetBit(bit + 1)) {
+                if ((bit & 1) == direction) {
+                    implied.add(properties.get(bit >> 1));
+                }
+            }
+        }
+
+        return implied;
+    }
+
+    private static int node(Map<OWLObjectProperty, Integer> ids, OWLObjectPropertyExpression expression) {
+        return 2 * ids.get(expression.getNamedProperty()) + (expression.isAnonymous() ? 1 : 0);
+    }
+
+    /**
+     * Adds <b>from</b> implies <b>to</b>, which also gives <b>inverse(from)</b> implies <b>inverse(to)</b>
+     */
+    private static void addImplication(List<List<Integer>> implications, int from, int to) {
+        implications.get(from).add(to);
+        implications.get(from ^ 1).add(to ^ 1);
+    }
+
+    private static BitSet reach(List<List<Integer>> implications, int start) {
+        BitSet reached = new BitSet(implications.size());
+        Deque<Integer> pending = new ArrayDeque<>();
+
+        reached.set(start);
+        pending.push(start);
+
+        while (!pending.isEmpty()) {
+            for (int next : implications.get(pending.pop())) {
+                if (!reached.get(next)) {
+                    reached.set(next);
+                    pending.push(next);
+                }
+            }
+        }
+
+        return reached;
+    }
+
+    private static boolean hasOddBit(BitSet bits) {
+        for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+            if ((bit & 1) == 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // endregion
+}
@@ -0,0 +1,153 @@
+package br.usp.ime.ontosat;
+
+import org.semanticweb.owlapi.model.OWLIndividual;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimated size and cost of a saturation, computed without generating any axiom. <br/>
+ *
+ * The counts follow the saturator's DFS, including the edges implied by inverse
+ * and symmetric roles, and count each distinct restriction once, so they are exact.
+ * Counting distinct restrictions takes memory in the order of the saturation, so
+ * past the estimator's budget the restrictions are summed instead, see {@link #isExact()}.
+ */
+public class SaturationEstimate {
+
+    // region attributes
+
+    private final boolean exact;
+
+    private final long totalAxioms;
+
+    private final long totalRestrictions;
+
+    private final int maxDepth;
+
+    private final Map<OWLIndividual, Long> axiomsPerIndividual;
+
+    private final List<Component> components;
+
+    /**
+     * Estimated cost of a strongly connected component of the relation's graph.
+     * Only components with a cycle are reported.
+     */
+    public static class Component {
+        private final OWLIndividual representative;
+        private final int size;
+        private final long edges;
+        private final long axioms;
+        private final int maxDepth;
+
+        Component(OWLIndividual representative, int size, long edges, long axioms, int maxDepth) {
+            this.representative = representative;
+            this.size = size;
+            this.edges = edges;
+            this.axioms = axioms;
+            this.maxDepth = maxDepth;
+        }
+
+        /**
+         * @return The first individual of the component found by the DFS
+         */
+        public OWLIndividual getRepresentative() {
+            return representative;
+        }
+
+        /**
+         * @return The number of individuals in the component
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * @return The number of edges between individuals of the component
+         */
+        public long getEdges() {
+            return edges;
+        }
+
+        /**
+         * @return The bound on the axioms derived for the individuals of the component
+         */
+        public long getAxioms() {
+            return axioms;
+        }
+
+        /**
+         * @return The maximum nesting depth of the restrictions derived for the component
+         */
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+    }
+
+    // endregion
+
+    SaturationEstimate(boolean exact,
+                       long totalAxioms,
+                       long totalRestrictions,
+                       int maxDepth,
+                       Map<OWLIndividual, Long> axiomsPerIndividual,
+                       List<Component> components) {
+        this.exact = exact;
+        this.totalAxioms = totalAxioms;
+        this.totalRestrictions = totalRestrictions;
+        this.maxDepth = maxDepth;
+        this.axiomsPerIndividual = Collections.unmodifiableMap(axiomsPerIndividual);
+        this.components = Collections.unmodifiableList(components);
+    }
+
+    // region public methods
+
+    /**
+     * @return Whether the counts are exact. Otherwise the budget for distinct restrictions
+     * was exceeded and the counts are an upper bound; the maximum depth is still exact.
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * @return The bound on the number of derived axioms. Saturates at {@link Long#MAX_VALUE}.
+     */
+    public long getTotalAxioms() {
+        return totalAxioms;
+    }
+
+    /**
+     * @return The bound on the number of existential restrictions across all derived
+     * axioms, which is proportional to the size of the saturated ontology.
+     */
+    public long getTotalRestrictions() {
+        return totalRestrictions;
+    }
+
+    /**
+     * @return The maximum nesting depth of the derived restrictions
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return The bound on the derived axioms of each individual, in the order
+     * the individuals are visited
+     */
+    public Map<OWLIndividual, Long> getAxiomsPerIndividual() {
+        return axiomsPerIndividual;
+    }
+
+    /**
+     * @return The cyclic strongly connected components of the graph, from the
+     * most to the least expensive
+     */
+    public List<Component> getComponents() {
+        return components;
+    }
+
+    // endregion
+}
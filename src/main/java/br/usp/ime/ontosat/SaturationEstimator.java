@@ -0,0 +1,601 @@
+package br.usp.ime.ontosat;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Computes a {@link SaturationEstimate} over the relation's graph. <br/>
+ *
+ * The estimator replays the DFS of the {@link Saturator} with the same visiting
+ * order, so cycles are cut exactly where the saturator cuts them, but it only
+ * propagates counters: for each individual the number of derived axioms, the
+ * number of existential restrictions inside them and their nesting depth. The
+ * same traversal runs Tarjan's algorithm to report the cost of each strongly
+ * connected component. The DFS is iterative, so deep chains do not overflow the
+ * stack. <br/>
+ *
+ * Each derived restriction is interned as an integer: <b>\exists r.C</b> as the pair
+ * (property, class) and <b>\exists r.X</b> as the pair (property, restriction of
+ * <b>X</b>). The derivation of an individual is the set of its restriction ids, so
+ * restrictions reached through different neighbours, including shared subtrees,
+ * are counted once, as the saturated ontology keeps a single copy of them. The set
+ * is determined by the signature of the individual: the pairs (property, class)
+ * built from the classes of its neighbours and the pairs (property, derivation) of
+ * the neighbours chained into it. Signatures are interned, so individuals with the
+ * same signature share their derivation and it is only computed once. <br/>
+ *
+ * Interning keeps every distinct restriction in memory, which grows with the size
+ * of the saturation itself, e.g. quadratically along a chain of individuals with
+ * distinct classes. The interned restrictions and the stored derivations are thus
+ * limited by a budget. Once it is exceeded, the exact counters are dropped and the
+ * DFS is replayed propagating only saturating sums: each edge contributes its number
+ * of properties times the classes of the neighbour plus the counters of the
+ * neighbour it chains. The result is then an upper bound, computed with a constant
+ * number of counters per individual.
+ */
+final class SaturationEstimator {
+
+    // region attributes
+
+    private static final byte UNVISITED = 0;
+    private static final byte EXPLORED = 1;
+    private static final byte VISITED = 2;
+
+    /**
+     * Default limit on the interned restrictions plus the restriction ids of the stored derivations
+     */
+    static final long DEFAULT_BUDGET = 1 << 22;
+
+    private final long budget;
+
+    /**
+     * Whether the restrictions are being interned. Cleared when the budget is exceeded.
+     */
+    private boolean exact = true;
+
+    /**
+     * Set when the budget is exceeded, which stops the exact DFS
+     */
+    private boolean exceeded = false;
+
+    /**
+     * Number of restriction ids held by the stored derivations
+     */
+    private long storedIds = 0;
+
+    private final List<OWLNamedIndividual> individuals;
+
+    /**
+     * The neighbours of each node, after applying the role closure
+     */
+    private final Function<OWLIndividual, Map<OWLIndividual, Set<OWLObjectProperty>>> edges;
+
+    private final Map<OWLIndividual, Set<OWLClass>> classIndex;
+
+    private final OWLClass thingClass = OWLManager.getOWLDataFactory().getOWLThing();
+
+    private final Map<OWLObjectProperty, Integer> propertyIds = new HashMap<>();
+
+    private final Map<OWLClass, Integer> classIds = new HashMap<>();
+
+    /**
+     * Interned property ids of the edges, shared by the edges with the same properties
+     */
+    private final Map<Set<OWLObjectProperty>, int[]> labelIds = new HashMap<>();
+
+    // region graph
+    /**
+     * The neighbours of each node, or -1 for individuals out of the graph. These are
+     * the anonymous objects of role assertions, which the saturator treats as leaves.
+     */
+    private int[][] targets;
+    private int[][][] labels;
+    // endregion
+
+    // region derivations
+    /**
+     * The pairs (property, class) of each explored node, until it finishes
+     */
+    private long[][] directPairs;
+
+    /**
+     * The pairs (property, derivation) of each explored node, until it finishes
+     */
+    private final Map<Integer, Set<Long>> chainedPairs = new HashMap<>();
+
+    /**
+     * The derivation of each finished node
+     */
+    private int[] derivations;
+
+    /**
+     * A node of each derivation, holding its counters
+     */
+    private final List<Integer> representatives = new ArrayList<>();
+
+    /**
+     * The sorted restriction ids of each derivation
+     */
+    private final List<int[]> derivationRestrictions = new ArrayList<>();
+
+    /**
+     * Interned restrictions, keyed by the pairs (property, class) and (property, restriction)
+     */
+    private final Map<Long, Integer> classRestrictions = new HashMap<>();
+    private final Map<Long, Integer> nestedRestrictions = new HashMap<>();
+
+    /**
+     * The nesting depth of each restriction, which is also its number of existential restrictions
+     */
+    private int[] restrictionDepths = new int[16];
+    private int restrictionCount = 0;
+
+    private final Map<Signature, Integer> signatures = new HashMap<>();
+    // endregion
+
+    // region counters
+    private byte[] status;
+    private long[] axioms;
+    private long[] restrictions;
+    private int[] depths;
+    // endregion
+
+    // region tarjan
+    private int[] index;
+    private int[] low;
+    private int[] component;
+    private boolean[] onStack;
+    private int nextIndex;
+    private final Deque<Integer> componentStack = new ArrayDeque<>();
+    private final List<List<Integer>> components = new ArrayList<>();
+    // endregion
+
+    // endregion
+
+    /**
+     * @param budget Limit on the interned restrictions plus the restriction ids of the
+     *               stored derivations, above which the estimate becomes an upper bound
+     */
+    SaturationEstimator(List<OWLNamedIndividual> individuals,
+                        Function<OWLIndividual, Map<OWLIndividual, Set<OWLObjectProperty>>> edges,
+                        Map<OWLIndividual, Set<OWLClass>> classIndex,
+                        long budget) {
+        this.individuals = individuals;
+        this.edges = edges;
+        this.classIndex = classIndex;
+        this.budget = budget;
+    }
+
+    SaturationEstimate estimate() {
+        int n = individuals.size();
+
+        Map<OWLIndividual, Integer> ids = new HashMap<>(2 * n);
+        for (int i = 0; i < n; i++) {
+            ids.put(individuals.get(i), i);
+        }
+
+        // flattens the adjacency keeping the iteration order of the saturator
+        targets = new int[n][];
+        labels = new int[n][][];
+        for (int i = 0; i < n; i++) {
+            Map<OWLIndividual, Set<OWLObjectProperty>> neighbours = edges.apply(individuals.get(i));
+            targets[i] = new int[neighbours.size()];
+            labels[i] = new int[neighbours.size()][];
+
+            int j = 0;
+            for (Map.Entry<OWLIndividual, Set<OWLObjectProperty>> edge : neighbours.entrySet()) {
+                Integer target = ids.get(edge.getKey());
+
+                targets[i][j] = target != null ? target : -1;
+                labels[i][j] = labelIds.computeIfAbsent(edge.getValue(), properties ->
+                        properties.stream().mapToInt(this::getPropertyId).toArray());
+                j++;
+            }
+        }
+
+        run();
+
+        if (exceeded) {
+            // the interned restrictions are released before the DFS is replayed
+            exact = false;
+            exceeded = false;
+            directPairs = null;
+            derivations = null;
+            chainedPairs.clear();
+            representatives.clear();
+            derivationRestrictions.clear();
+            classRestrictions.clear();
+            nestedRestrictions.clear();
+            signatures.clear();
+            restrictionDepths = new int[16];
+            restrictionCount = 0;
+            storedIds = 0;
+
+            run();
+        }
+
+        return createEstimate();
+    }
+
+    // region private methods
+
+    /**
+     * Runs the DFS from every unvisited individual, in the order of the saturator
+     */
+    private void run() {
+        int n = individuals.size();
+
+        status = new byte[n];
+        axioms = new long[n];
+        restrictions = new long[n];
+        depths = new int[n];
+        index = new int[n];
+        low = new int[n];
+        component = new int[n];
+        onStack = new boolean[n];
+        nextIndex = 0;
+        componentStack.clear();
+        components.clear();
+
+        if (exact) {
+            directPairs = new long[n][];
+            derivations = new int[n];
+        }
+
+        for (int root = 0; root < n && !exceeded; root++) {
+            if (status[root] == UNVISITED) {
+                visit(root);
+            }
+        }
+    }
+
+    /**
+     * Iterative version of the saturator's DFS. The cursor of each node points to
+     * the edge being processed; a child is chained into its parent when it finishes.
+     */
+    private void visit(int root) {
+        Deque<int[]> frames = new ArrayDeque<>();
+
+        enter(root);
+        frames.push(new int[] { root, 0 });
+
+        while (!frames.isEmpty()) {
+            int[] frame = frames.peek();
+            int node = frame[0];
+
+            if (frame[1] < targets[node].length) {
+                int target = targets[node][frame[1]];
+
+                // leaves only contribute their classes, already counted by enter
+                if (target < 0) {
+                    frame[1]++;
+                    continue;
+                }
+
+                if (status[target] == UNVISITED) {
+                    enter(target);
+                    frames.push(new int[] { target, 0 });
+                    continue;
+                }
+
+                if (status[target] == VISITED) {
+                    chain(node, frame[1]);
+                }
+
+                if (onStack[target]) {
+                    low[node] = Math.min(low[node], index[target]);
+                }
+
+                frame[1]++;
+                continue;
+            }
+
+            finish(node);
+            if (exceeded) {
+                return;
+            }
+            frames.pop();
+
+            if (!frames.isEmpty()) {
+                int[] parent = frames.peek();
+
+                chain(parent[0], parent[1]);
+                low[parent[0]] = Math.min(low[parent[0]], low[node]);
+                parent[1]++;
+            }
+        }
+    }
+
+    /**
+     * Marks the node as explored and collects the restrictions built straight from
+     * the classes of its neighbours, as in Saturator#createAxiomsFromObjectClasses
+     */
+    private void enter(int node) {
+        status[node] = EXPLORED;
+        index[node] = nextIndex;
+        low[node] = nextIndex;
+        nextIndex++;
+
+        componentStack.push(node);
+        onStack[node] = true;
+
+        if (!exact) {
+            for (Map.Entry<OWLIndividual, Set<OWLObjectProperty>> edge : edges.apply(individuals.get(node)).entrySet()) {
+                Set<OWLClass> classes = classIndex.get(edge.getKey());
+                long pairs = multiply(edge.getValue().size(), classes != null ? classes.size() : 1);
+
+                axioms[node] = add(axioms[node], pairs);
+                depths[node] = 1;
+            }
+            restrictions[node] = axioms[node];
+
+            return;
+        }
+
+        Set<Long> pairs = new HashSet<>();
+        for (Map.Entry<OWLIndividual, Set<OWLObjectProperty>> edge : edges.apply(individuals.get(node)).entrySet()) {
+            Set<OWLClass> classes = classIndex.get(edge.getKey());
+            if (classes == null) {
+                classes = Collections.singleton(thingClass);
+            }
+
+            for (OWLObjectProperty property : edge.getValue()) {
+                long propertyId = getPropertyId(property);
+
+                for (OWLClass owlClass : classes) {
+                    pairs.add(propertyId << 32 | classIds.computeIfAbsent(owlClass, k -> classIds.size()));
+                }
+            }
+        }
+
+        directPairs[node] = toSortedArray(pairs);
+    }
+
+    /**
+     * Collects the restrictions built on top of the axioms of a finished neighbour,
+     * as in Saturator#createAxiomsFromChain
+     */
+    private void chain(int node, int edge) {
+        int target = targets[node][edge];
+
+        if (axioms[target] == 0) {
+            return;
+        }
+
+        // every restriction of the neighbour is chained once per property of the edge
+        if (!exact) {
+            int properties = labels[node][edge].length;
+
+            axioms[node] = add(axioms[node], multiply(properties, axioms[target]));
+            restrictions[node] = add(restrictions[node], multiply(properties, add(restrictions[target], axioms[target])));
+            depths[node] = Math.max(depths[node], depths[target] + 1);
+
+            return;
+        }
+
+        Set<Long> pairs = chainedPairs.computeIfAbsent(node, k -> new HashSet<>());
+        for (long propertyId : labels[node][edge]) {
+            pairs.add(propertyId << 32 | derivations[target]);
+        }
+    }
+
+    /**
+     * Marks the node as visited and counts its restrictions. Nodes with a signature
+     * already seen take the derivation and counters of the first node with that signature.
+     */
+    private void finish(int node) {
+        status[node] = VISITED;
+
+        if (exact) {
+            derive(node);
+            if (exceeded) {
+                return;
+            }
+        }
+
+        if (low[node] != index[node]) {
+            return;
+        }
+
+        List<Integer> members = new ArrayList<>();
+        int member;
+        do {
+            member = componentStack.pop();
+            onStack[member] = false;
+            component[member] = components.size();
+            members.add(member);
+        } while (member != node);
+
+        components.add(members);
+    }
+
+    /**
+     * Interns the signature of the node and takes its derivation, counting the
+     * restrictions of the signatures not seen yet
+     */
+    private void derive(int node) {
+        Set<Long> chained = chainedPairs.remove(node);
+        Signature signature = new Signature(
+                directPairs[node],
+                chained != null ? toSortedArray(chained) : new long[0]);
+        directPairs[node] = null;
+
+        Integer derivation = signatures.get(signature);
+        if (derivation == null) {
+            derivation = representatives.size();
+            representatives.add(node);
+            signatures.put(signature, derivation);
+
+            if (!count(node, signature)) {
+                exceeded = true;
+                return;
+            }
+        } else {
+            int representative = representatives.get(derivation);
+
+            axioms[node] = axioms[representative];
+            restrictions[node] = restrictions[representative];
+            depths[node] = depths[representative];
+        }
+        derivations[node] = derivation;
+    }
+
+    /**
+     * Computes the derivation of a new signature and counts its restrictions. Each pair
+     * (property, class) gives one restriction and each pair (property, derivation) one
+     * restriction on top of every restriction of the derivation. Restrictions are
+     * interned, so the ones given by more than one pair are counted once.
+     * @return False if the budget was exceeded, in which case nothing is counted
+     */
+    private boolean count(int node, Signature signature) {
+        Set<Integer> nodeRestrictions = new HashSet<>();
+
+        for (long pair : signature.direct) {
+            nodeRestrictions.add(classRestrictions.computeIfAbsent(pair, k -> createRestriction(1)));
+            if (isOverBudget(nodeRestrictions.size())) {
+                return false;
+            }
+        }
+
+        for (long pair : signature.chained) {
+            long propertyId = pair >>> 32;
+
+            for (int restriction : derivationRestrictions.get((int) pair)) {
+                int depth = restrictionDepths[restriction] + 1;
+                nodeRestrictions.add(nestedRestrictions.computeIfAbsent(propertyId << 32 | restriction,
+                        k -> createRestriction(depth)));
+                if (isOverBudget(nodeRestrictions.size())) {
+                    return false;
+                }
+            }
+        }
+
+        int[] sorted = nodeRestrictions.stream().mapToInt(Integer::intValue).sorted().toArray();
+        derivationRestrictions.add(sorted);
+        storedIds += sorted.length;
+
+        long nodeRestrictionCount = 0;
+        int nodeDepth = 0;
+        for (int restriction : sorted) {
+            nodeRestrictionCount += restrictionDepths[restriction];
+            nodeDepth = Math.max(nodeDepth, restrictionDepths[restriction]);
+        }
+
+        axioms[node] = sorted.length;
+        restrictions[node] = nodeRestrictionCount;
+        depths[node] = nodeDepth;
+
+        return true;
+    }
+
+    /**
+     * @param pending The restriction ids of the derivation being computed
+     */
+    private boolean isOverBudget(long pending) {
+        return restrictionCount + storedIds + pending > budget;
+    }
+
+    private int createRestriction(int depth) {
+        if (restrictionCount == restrictionDepths.length) {
+            restrictionDepths = Arrays.copyOf(restrictionDepths, 2 * restrictionCount);
+        }
+
+        restrictionDepths[restrictionCount] = depth;
+        return restrictionCount++;
+    }
+
+    private SaturationEstimate createEstimate() {
+        long totalAxioms = 0;
+        long totalRestrictions = 0;
+        int maxDepth = 0;
+        Map<OWLIndividual, Long> axiomsPerIndividual = new LinkedHashMap<>();
+
+        for (int i = 0; i < individuals.size(); i++) {
+            totalAxioms = add(totalAxioms, axioms[i]);
+            totalRestrictions = add(totalRestrictions, restrictions[i]);
+            maxDepth = Math.max(maxDepth, depths[i]);
+            axiomsPerIndividual.put(individuals.get(i), axioms[i]);
+        }
+
+        List<SaturationEstimate.Component> cyclicComponents = new ArrayList<>();
+        for (List<Integer> members : components) {
+            long edges = 0;
+            long componentAxioms = 0;
+            int componentDepth = 0;
+
+            for (int member : members) {
+                for (int target : targets[member]) {
+                    if (target >= 0 && component[target] == component[member]) {
+                        edges++;
+                    }
+                }
+
+                componentAxioms = add(componentAxioms, axioms[member]);
+                componentDepth = Math.max(componentDepth, depths[member]);
+            }
+
+            // a single individual is only a cycle if it is related to itself
+            if (members.size() > 1 || edges > 0) {
+                // members are popped in reverse order, so the last one is the root of the component
+                OWLIndividual representative = individuals.get(members.get(members.size() - 1));
+                cyclicComponents.add(new SaturationEstimate.Component(
+                        representative, members.size(), edges, componentAxioms, componentDepth));
+            }
+        }
+
+        cyclicComponents.sort(Comparator.comparingLong(SaturationEstimate.Component::getAxioms).reversed());
+
+        return new SaturationEstimate(exact, totalAxioms, totalRestrictions, maxDepth, axiomsPerIndividual, cyclicComponents);
+    }
+
+    private static long add(long a, long b) {
+        long result = a + b;
+        return result < 0 ? Long.MAX_VALUE : result;
+    }
+
+    private static long multiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long result = a * b;
+        return high != 0 || result < 0 ? Long.MAX_VALUE : result;
+    }
+
+    private int getPropertyId(OWLObjectProperty property) {
+        return propertyIds.computeIfAbsent(property, k -> propertyIds.size());
+    }
+
+    private static long[] toSortedArray(Set<Long> values) {
+        long[] array = values.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(array);
+        return array;
+    }
+
+    // endregion
+
+    /**
+     * The pairs that determine the derived restrictions of a node, both sorted
+     */
+    private static final class Signature {
+        private final long[] direct;
+        private final long[] chained;
+
+        Signature(long[] direct, long[] chained) {
+            this.direct = direct;
+            this.chained = chained;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Signature signature
+                    && Arrays.equals(direct, signature.direct)
+                    && Arrays.equals(chained, signature.chained);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(direct) + Arrays.hashCode(chained);
+        }
+    }
+}
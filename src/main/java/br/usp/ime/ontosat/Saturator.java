@@ -2,12 +2,15 @@ package br.usp.ime.ontosat;
 
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.*;
-import org.semanticweb.owlapi.model.parameters.Imports;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 /**
  * Saturates the ontology w.r.t. the existent assertions. <br/>
@@ -17,6 +20,10 @@ import java.util.*;
  * TBox with a new restriction equivalent to: <b>"r some C"</b>.
  * On the other hand, for each role assertion in the format <b>s(y,z)<b/>,
  * we add the restriction r some (s some X) where X is an assertion.
+ * The role hierarchy and inverse roles of the ontology are taken into
+ * account: a role assertion <b>r(x,y)</b> also yields the restrictions
+ * of every super role of <b>r</b> and, for every role <b>s</b> implied
+ * by the inverse of <b>r</b>, the restrictions of <b>s(y,x)</b>.
  */
 public class Saturator {
 
@@ -42,6 +49,17 @@ public class Saturator {
 
     private static Logger logger = LoggerFactory.getLogger(Saturator.class);
 
+    /**
+     * Minimum number of axioms per shard when building the graph in parallel
+     */
+    private static final int MIN_SHARD_SIZE = 4096;
+
+    /**
+     * Number of shards used to build the graph, or 0 to choose it from the number
+     * of axioms and processors
+     */
+    private int shardCount = 0;
+
     private SaturationMode saturationMode = SaturationMode.Assertional;
 
     // region ontology
@@ -66,6 +84,11 @@ public class Saturator {
         VISITED
     }
 
+    /**
+     * The individuals of the ontology, in the order the DFS visits them
+     */
+    private List<OWLNamedIndividual> individuals;
+
     /**
      * The adjacency map representing the graph of relations. Each node (individual)
      * is mapped to another map that represent the pairs of connected individuals
@@ -73,15 +96,50 @@ public class Saturator {
      */
     private Map<OWLIndividual, Map<OWLIndividual, Set<OWLObjectProperty>>> graph;
 
+    /**
+     * The edges whose properties imply an inverse role, indexed by object. Each
+     * object is mapped to the subjects related to it; the properties of the edge
+     * are read from {@link #graph}. Only filled when the ontology has inverse or
+     * symmetric roles.
+     */
+    private Map<OWLIndividual, List<OWLIndividual>> inverseGraph;
+
+    /**
+     * The role hierarchy and inverse closure applied to the edges of the graph
+     */
+    private RoleIndex roleIndex;
+
     /**
      * A map of each node and its status
      */
     private Map<OWLIndividual, NodeStatus> nodes;
 
+    /**
+     * A map of each individual and the named classes asserted to it. Individuals
+     * without class assertions are not mapped.
+     */
+    private Map<OWLIndividual, Set<OWLClass>> classIndex;
+
     /**
      * A map of partial responses of DFS
      */
     private Map<OWLIndividual, Set<OWLAxiom>> responses;
+
+    /**
+     * The individuals whose responses hold every inferred axiom: the roots of the
+     * DFS or, once restored from a snapshot, every individual
+     */
+    private List<OWLIndividual> roots;
+
+    /**
+     * The fingerprint of the ontology if it was already computed, see {@link SaturatorSnapshot#fingerprint(OWLOntology)}
+     */
+    private Long fingerprint;
+
+    /**
+     * Whether the responses of all nodes were already computed
+     */
+    private boolean saturated = false;
     // endregion graph
 
     // endregion private attributes
@@ -95,11 +153,42 @@ public class Saturator {
      * the specified file.
      */
     public Saturator(File ontologyFile) throws OWLOntologyCreationException {
+        this(OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(ontologyFile));
+    }
+
+    /**
+     * Initializes the saturator with the specified ontology
+     * @param ontologyFile A File instance related to the specified ontology
+     * @param saturationMode Saturation mode. Assertional mode selected by default.
+     * @throws OWLOntologyCreationException Could not load the ontology from
+     * the specified file.
+     */
+    public Saturator(File ontologyFile, SaturationMode saturationMode) throws OWLOntologyCreationException {
+        this(ontologyFile);
+        this.saturationMode = saturationMode;
+    }
+
+    /**
+     * Initializes the saturator with an ontology already loaded in memory
+     * @param ontology The ontology to be saturated
+     */
+    public Saturator(OWLOntology ontology) {
+        this(ontology, 0);
+    }
+
+    /**
+     * Initializes the saturator with an ontology already loaded in memory, building
+     * the graph with a fixed number of shards
+     * @param ontology The ontology to be saturated
+     * @param shardCount Number of shards, or 0 to choose it from the number of axioms
+     */
+    Saturator(OWLOntology ontology, int shardCount) {
         logger.info("Initializing saturator...");
 
+        this.shardCount = shardCount;
         owlDataFactory = OWLManager.getOWLDataFactory();
         ontologyManager = OWLManager.createOWLOntologyManager();
-        ontology = ontologyManager.loadOntologyFromOntologyDocument(ontologyFile);
+        this.ontology = ontology;
 
         createGraph();
 
@@ -107,26 +196,168 @@ public class Saturator {
     }
 
     /**
-     * Initializes the saturator with the specified ontology
-     * @param ontologyFile A File instance related to the specified ontology
+     * Initializes the saturator with an ontology already loaded in memory
+     * @param ontology The ontology to be saturated
      * @param saturationMode Saturation mode. Assertional mode selected by default.
-     * @throws OWLOntologyCreationException Could not load the ontology from
-     * the specified file.
      */
-    public Saturator(File ontologyFile, SaturationMode saturationMode) throws OWLOntologyCreationException {
-        this(ontologyFile);
+    public Saturator(OWLOntology ontology, SaturationMode saturationMode) {
+        this(ontology);
         this.saturationMode = saturationMode;
     }
 
+    /**
+     * Initializes the saturator with the state restored from a snapshot
+     * @param snapshot A {@link SaturatorSnapshot} previously loaded
+     * @param ontology The ontology the snapshot was saved from, or null if it was not loaded
+     */
+    private Saturator(SaturatorSnapshot snapshot, OWLOntology ontology) {
+        owlDataFactory = OWLManager.getOWLDataFactory();
+        ontologyManager = OWLManager.createOWLOntologyManager();
+        this.ontology = ontology;
+
+        saturationMode = snapshot.saturationMode;
+        individuals = snapshot.individuals;
+        graph = snapshot.graph;
+        classIndex = snapshot.classIndex;
+        roleIndex = snapshot.roleIndex;
+        fingerprint = snapshot.fingerprint;
+        nodes = new HashMap<>();
+
+        // the inferred axioms of each individual are its response: the DFS is over,
+        // so the responses only need to hold every inferred axiom once
+        if (snapshot.inferredAxioms != null) {
+            responses = snapshot.inferredAxioms;
+            roots = new ArrayList<>(individuals);
+            saturated = true;
+        } else {
+            responses = new HashMap<>();
+            roots = new ArrayList<>();
+        }
+
+        for (OWLNamedIndividual individual : individuals) {
+            nodes.put(individual, responses.containsKey(individual) ? NodeStatus.VISITED : NodeStatus.UNVISITED);
+        }
+
+        createInverseGraph();
+    }
+
     // endregion constructors
 
     // region public methods
 
+    /**
+     * Restores a saturator from a snapshot written by {@link #saveSnapshot(File)}.
+     * The snapshot replaces building the graph and, if it was saved after the
+     * saturation, the DFS. It does not hold the source ontology, so the ontology
+     * the snapshot was saved from must be given: its axioms are added to the
+     * ontology returned by {@link #saturate()}, as in a saturation from scratch.
+     * The snapshot is rejected if its class and role assertions or role axioms changed,
+     * which takes a pass over them; {@link #loadSnapshot(File, List, OWLOntology)}
+     * checks the source files instead.
+     * @param snapshotFile A File instance related to the snapshot
+     * @param ontology The ontology the snapshot was saved from
+     * @return The restored saturator
+     * @throws IOException If the snapshot cannot be read, has an unsupported version
+     * or was not saved from the given ontology
+     */
+    public static Saturator loadSnapshot(File snapshotFile, OWLOntology ontology) throws IOException {
+        logger.info("Loading snapshot...");
+
+        SaturatorSnapshot snapshot = SaturatorSnapshot.read(snapshotFile);
+        if (!ontology.getIndividualsInSignature().equals(new HashSet<>(snapshot.individuals))) {
+            throw new IOException("The snapshot does not match the individuals of the ontology: " + snapshotFile);
+        }
+
+        // a changed ABox with the same individuals would otherwise restore a stale graph
+        if (snapshot.fingerprint != SaturatorSnapshot.fingerprint(ontology)) {
+            throw new IOException("The snapshot does not match the assertions of the ontology: " + snapshotFile);
+        }
+
+        Saturator saturator = new Saturator(snapshot, ontology);
+
+        logger.info("Snapshot loaded.");
+        return saturator;
+    }
+
+    /**
+     * Restores a saturator from a snapshot written by {@link #saveSnapshot(File, List)},
+     * checking it against the bytes of the source files instead of the parsed ontology.
+     * Without the ontology, the saturator can still {@link #infer()} the axioms and
+     * {@link #estimate()} the saturation, but not {@link #saturate()} the ontology.
+     * @param snapshotFile A File instance related to the snapshot
+     * @param sourceFiles The files the snapshot was saved from, in the same order
+     * @param ontology The ontology parsed from the source files, or null to skip the parse
+     * @return The restored saturator
+     * @throws IOException If the snapshot cannot be read, has an unsupported version
+     * or was not saved from the given files
+     */
+    public static Saturator loadSnapshot(File snapshotFile, List<File> sourceFiles, OWLOntology ontology) throws IOException {
+        logger.info("Loading snapshot...");
+
+        SaturatorSnapshot snapshot = SaturatorSnapshot.read(snapshotFile);
+        if (snapshot.sourceHash == SaturatorSnapshot.NO_SOURCES) {
+            throw new IOException("The snapshot was saved without its source files: " + snapshotFile);
+        }
+
+        if (snapshot.sourceHash != SaturatorSnapshot.sourceHash(sourceFiles)) {
+            throw new IOException("The snapshot does not match the source files: " + snapshotFile);
+        }
+
+        Saturator saturator = new Saturator(snapshot, ontology);
+
+        logger.info("Snapshot loaded.");
+        return saturator;
+    }
+
+    /**
+     * Saves the relation's graph, the class assertions of each individual and,
+     * if {@link #saturate()} was already called, the saturation results into a
+     * binary snapshot that can be restored with {@link #loadSnapshot(File, OWLOntology)}.
+     * @param snapshotFile A File instance where the snapshot will be stored
+     * @throws IOException If the snapshot cannot be written
+     */
+    public void saveSnapshot(File snapshotFile) throws IOException {
+        saveSnapshot(snapshotFile, Collections.emptyList());
+    }
+
+    /**
+     * Saves the snapshot as {@link #saveSnapshot(File)} does, recording a hash of the
+     * source files so it can also be restored with {@link #loadSnapshot(File, List, OWLOntology)}.
+     * @param snapshotFile A File instance where the snapshot will be stored
+     * @param sourceFiles The files the ontology of this saturator was parsed from
+     * @throws IOException If the snapshot cannot be written or a source file cannot be read
+     */
+    public void saveSnapshot(File snapshotFile, List<File> sourceFiles) throws IOException {
+        logger.info("Saving snapshot...");
+
+        SaturatorSnapshot snapshot = new SaturatorSnapshot();
+        snapshot.saturationMode = saturationMode;
+        snapshot.fingerprint = fingerprint != null ? fingerprint : SaturatorSnapshot.fingerprint(ontology);
+        snapshot.sourceHash = SaturatorSnapshot.sourceHash(sourceFiles);
+        snapshot.individuals = individuals;
+        snapshot.graph = graph;
+        snapshot.classIndex = classIndex;
+        snapshot.roleIndex = roleIndex;
+
+        if (saturated) {
+            snapshot.inferredAxioms = groupInferredAxioms();
+        }
+
+        snapshot.write(snapshotFile);
+
+        logger.info("Snapshot saved at: " + snapshotFile.getPath());
+    }
+
     /**
      * Saturates the loaded ontology through a DFS on the relation's graph.
      * @return An {@link OWLOntology} object of the saturated ontology.
+     * @throws IllegalStateException If the saturator was restored from a snapshot without its ontology
      */
     public OWLOntology saturate() {
+        if (ontology == null) {
+            throw new IllegalStateException("The saturator was restored without its ontology, see infer()");
+        }
+
         logger.info("Starting saturation...");
         logger.info("[mode]: {}", saturationMode);
 
@@ -134,13 +365,9 @@ public class Saturator {
             saturatedOntology = ontologyManager.createOntology();
             ontologyManager.addAxioms(saturatedOntology, ontology.getAxioms());
 
-            responses = new HashMap<>();
-
-            // calls the adapted DFS for each unvisited node
-            for (OWLNamedIndividual individual : ontology.getIndividualsInSignature()) {
-                if (nodes.get(individual) == NodeStatus.UNVISITED) {
-                    ontologyManager.addAxioms(saturatedOntology, DFS(individual));
-                }
+            runDFS();
+            for (OWLIndividual root : roots) {
+                ontologyManager.addAxioms(saturatedOntology, responses.get(root));
             }
 
         } catch (OWLOntologyCreationException e) {
@@ -153,32 +380,279 @@ public class Saturator {
         logger.info("Saturation successfully completed.");
         return saturatedOntology;
     }
+
+    /**
+     * Saturates the relation's graph without building the saturated ontology, so it
+     * does not need the source ontology, e.g. after {@link #loadSnapshot(File, List, OWLOntology)}
+     * without it.
+     * @return The inferred axioms, see {@link #getInferredAxioms()}
+     */
+    public Set<OWLAxiom> infer() {
+        logger.info("Starting inference...");
+        logger.info("[mode]: {}", saturationMode);
+
+        runDFS();
+
+        logger.info("Inference successfully completed.");
+        return getInferredAxioms();
+    }
+
+    /**
+     * Estimates the size of the saturation without generating any axiom. The
+     * estimate follows the assertional mode, where each restriction becomes a
+     * class assertion.
+     * @return A {@link SaturationEstimate} with the bound on the number of derived
+     * axioms per individual and in total, the maximum nesting depth and the cost of
+     * each cyclic component of the relation's graph.
+     */
+    public SaturationEstimate estimate() {
+        return estimate(SaturationEstimator.DEFAULT_BUDGET);
+    }
+
+    /**
+     * Estimates the size of the saturation without generating any axiom, limiting the
+     * memory used to count distinct restrictions.
+     * @param budget Maximum number of distinct restrictions, plus the restrictions of each
+     *               distinct derivation, kept while counting. Past it, the estimate is an
+     *               upper bound computed with a constant number of counters per individual.
+     * @return A {@link SaturationEstimate}, see {@link #estimate()}
+     */
+    public SaturationEstimate estimate(long budget) {
+        logger.info("Estimating saturation...");
+
+        SaturationEstimate estimate = new SaturationEstimator(individuals, this::getEdges, classIndex, budget).estimate();
+        if (!estimate.isExact()) {
+            logger.info("Estimation budget exceeded, the estimate is an upper bound.");
+        }
+
+        logger.info("Estimation completed.");
+        return estimate;
+    }
+
+    /**
+     * @return The axioms inferred by the last call to {@link #saturate()} or {@link #infer()},
+     * or restored from a snapshot. The set is the union of the responses of the roots
+     * of the DFS, built on each call.
+     */
+    public Set<OWLAxiom> getInferredAxioms() {
+        Set<OWLAxiom> inferredAxioms = new HashSet<>();
+        roots.forEach(root -> inferredAxioms.addAll(responses.get(root)));
+
+        return Collections.unmodifiableSet(inferredAxioms);
+    }
+    // endregion
+
+    // region package methods
+
+    Map<OWLIndividual, Map<OWLIndividual, Set<OWLObjectProperty>>> getGraph() {
+        return graph;
+    }
+
+    Map<OWLIndividual, Set<OWLClass>> getClassIndex() {
+        return classIndex;
+    }
+
     // endregion
 
     // region private methods
 
+    /**
+     * Creates the relation's graph and the class index. The axioms are copied out of
+     * the ontology once and then sharded by subject, so each shard owns the adjacency
+     * of its individuals and can be filled by a different thread. Inside a shard the
+     * axioms keep the ontology order, hence the resulting graph does not depend on
+     * the number of threads nor on their scheduling.
+     */
     private void createGraph() {
         logger.info("Creating graph...");
 
-        graph = new HashMap<>();
-        nodes = new HashMap<>();
+        individuals = new ArrayList<>(ontology.getIndividualsInSignature());
+        graph = new HashMap<>(2 * individuals.size());
+        nodes = new HashMap<>(2 * individuals.size());
+        classIndex = new HashMap<>();
+        roleIndex = RoleIndex.create(ontology);
+        responses = new HashMap<>();
+        roots = new ArrayList<>();
 
         // initializes the adjacency map as empty and all nodes as unvisited
-        for (OWLNamedIndividual individual : ontology.getIndividualsInSignature()) {
+        for (OWLNamedIndividual individual : individuals) {
             addNode(individual);
         }
 
         // for each property assertion axiom (role assertion) an edge
-        // is added to the graph
-        for (OWLAxiom axiom : ontology.getABoxAxioms(Imports.EXCLUDED)) {
-            if (axiom instanceof OWLObjectPropertyAssertionAxiom) {
-                addEdge((OWLObjectPropertyAssertionAxiom) axiom);
-            }
+        // is added to the graph. Assertions of inverse properties are
+        // simplified, so inverse(r)(x,y) becomes the edge r(y,x)
+        List<OWLObjectPropertyAssertionAxiom> roleAssertions = new ArrayList<>();
+        for (OWLObjectPropertyAssertionAxiom axiom : ontology.getAxioms(AxiomType.OBJECT_PROPERTY_ASSERTION)) {
+            addRoleAssertion(roleAssertions, axiom);
         }
 
+        forEachShard(roleAssertions, OWLObjectPropertyAssertionAxiom::getSubject, (shard, axiom) -> addEdge(axiom));
+
+        // indexes the named classes of each individual, so the DFS does not
+        // need to query the ontology for every edge
+        List<OWLClassAssertionAxiom> classAssertions =
+                new ArrayList<>(ontology.getAxioms(AxiomType.CLASS_ASSERTION));
+        List<Map<OWLIndividual, Set<OWLClass>>> partialIndexes = new ArrayList<>();
+
+        for (int i = 0; i < getShardCount(classAssertions.size()); i++) {
+            partialIndexes.add(new HashMap<>());
+        }
+
+        forEachShard(classAssertions, OWLClassAssertionAxiom::getIndividual, (shard, axiom) ->
+                partialIndexes.get(shard)
+                        .computeIfAbsent(axiom.getIndividual(), k -> new HashSet<>())
+                        .addAll(axiom.getClassesInSignature()));
+
+        // shards are disjoint by individual, so merging them is just a union
+        partialIndexes.forEach(classIndex::putAll);
+
+        createInverseGraph();
+
         logger.info("Graph created.");
     }
 
+    /**
+     * Indexes by object the edges whose properties imply an inverse role, so the DFS
+     * can also follow them from the object to the subject. Only the subjects are
+     * kept: the asserted properties stay in {@link #graph} and the role closure is
+     * applied when the edge is visited.
+     */
+    private void createInverseGraph() {
+        inverseGraph = new HashMap<>();
+
+        if (!roleIndex.hasInverses()) {
+            return;
+        }
+
+        for (OWLNamedIndividual individual : individuals) {
+            graph.get(individual).forEach((object, properties) -> {
+                if (properties.stream().anyMatch(roleIndex::hasInverse)) {
+                    inverseGraph.computeIfAbsent(object, k -> new ArrayList<>()).add(individual);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the neighbours of the node with the properties relating them, after
+     * applying the role hierarchy and the inverse closure. Edges followed from the
+     * object to the subject come after the outgoing ones; if a neighbour is reached
+     * both ways, their properties are merged.
+     * @param node An {@link OWLIndividual} of the graph
+     * @return A map of each neighbour and the properties <b>r</b> such that <b>r(node, neighbour)</b>
+     */
+    private Map<OWLIndividual, Set<OWLObjectProperty>> getEdges(OWLIndividual node) {
+        if (roleIndex.isTrivial()) {
+            return graph.get(node);
+        }
+
+        Map<OWLIndividual, Set<OWLObjectProperty>> edges = new LinkedHashMap<>();
+        graph.get(node).forEach((u, properties) -> edges.put(u, roleIndex.getImpliedProperties(properties)));
+
+        List<OWLIndividual> subjects = inverseGraph.get(node);
+        if (subjects != null) {
+            for (OWLIndividual u : subjects) {
+                Set<OWLObjectProperty> inverse = roleIndex.getImpliedInverseProperties(graph.get(u).get(node));
+                edges.merge(u, inverse, (current, added) -> {
+                    Set<OWLObjectProperty> merged = new HashSet<>(current);
+                    merged.addAll(added);
+                    return merged;
+                });
+            }
+        }
+
+        return edges;
+    }
+
+    private int getShardCount(int size) {
+        int shards = shardCount > 0
+                ? Math.min(shardCount, size)
+                : Math.min(Runtime.getRuntime().availableProcessors(), size / MIN_SHARD_SIZE);
+        return Math.max(1, shards);
+    }
+
+    /**
+     * Applies the action to every axiom, sharding the axioms by the individual returned
+     * by the key. Shards run in parallel, while the axioms of the same shard are handled
+     * by a single thread in the order they appear in the list.
+     * @param axioms The axioms to be handled
+     * @param key Maps an axiom to the individual that defines its shard
+     * @param action Receives the shard index and the axiom
+     */
+    private <T extends OWLAxiom> void forEachShard(List<T> axioms,
+                                                   Function<T, OWLIndividual> key,
+                                                   BiConsumer<Integer, T> action) {
+        int shards = getShardCount(axioms.size());
+
+        if (shards == 1) {
+            axioms.forEach(axiom -> action.accept(0, axiom));
+            return;
+        }
+
+        // splits the list into contiguous chunks and buckets each chunk by shard
+        List<List<List<T>>> buckets = new ArrayList<>();
+        for (int chunk = 0; chunk < shards; chunk++) {
+            buckets.add(null);
+        }
+
+        IntStream.range(0, shards).parallel().forEach(chunk -> {
+            List<List<T>> chunkBuckets = new ArrayList<>();
+            for (int shard = 0; shard < shards; shard++) {
+                chunkBuckets.add(new ArrayList<>());
+            }
+
+            int from = (int) ((long) chunk * axioms.size() / shards);
+            int to = (int) ((long) (chunk + 1) * axioms.size() / shards);
+
+            for (T axiom : axioms.subList(from, to)) {
+                int shard = (key.apply(axiom).hashCode() & Integer.MAX_VALUE) % shards;
+                chunkBuckets.get(shard).add(axiom);
+            }
+
+            buckets.set(chunk, chunkBuckets);
+        });
+
+        // visiting the chunks in order keeps the original order inside each shard
+        IntStream.range(0, shards).parallel().forEach(shard -> {
+            for (List<List<T>> chunkBuckets : buckets) {
+                for (T axiom : chunkBuckets.get(shard)) {
+                    action.accept(shard, axiom);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds the role assertion to the list of edges to be created, with inverse properties
+     * simplified. Only named individuals are nodes of the graph, so an assertion
+     * <b>r(y,x)</b> with an anonymous <b>y</b>, asserted directly or as
+     * <b>inverse(r)(x,y)</b>, is kept from <b>x</b> with the roles <b>s</b> such that
+     * <b>r(y,x)</b> implies <b>s(x,y)</b>. Assertions between anonymous individuals
+     * are skipped.
+     */
+    private void addRoleAssertion(List<OWLObjectPropertyAssertionAxiom> roleAssertions,
+                                  OWLObjectPropertyAssertionAxiom axiom) {
+        OWLObjectPropertyAssertionAxiom simplified = axiom.getSimplified();
+        if (!simplified.getSubject().isAnonymous()) {
+            roleAssertions.add(simplified);
+            return;
+        }
+
+        Set<OWLObjectProperty> properties = simplified.getObject().isAnonymous()
+                ? Collections.emptySet()
+                : roleIndex.getImpliedInverseProperties(Set.of(simplified.getProperty().asOWLObjectProperty()));
+
+        if (properties.isEmpty()) {
+            logger.warn("Skipping role assertion without a named subject: {}", axiom);
+            return;
+        }
+
+        for (OWLObjectProperty property : properties) {
+            roleAssertions.add(owlDataFactory.getOWLObjectPropertyAssertionAxiom(property, simplified.getObject(), simplified.getSubject()));
+        }
+    }
+
     private void addNode(OWLIndividual individual) {
         graph.put(individual, new HashMap<>());
         nodes.put(individual, NodeStatus.UNVISITED);
@@ -202,6 +676,43 @@ public class Saturator {
         }
     }
 
+    /**
+     * Calls the adapted DFS for each unvisited node. The response of each root holds
+     * the responses of every node it reaches, so the roots are kept to collect the
+     * inferred axioms.
+     */
+    private void runDFS() {
+        for (OWLNamedIndividual individual : individuals) {
+            if (nodes.get(individual) == NodeStatus.UNVISITED) {
+                DFS(individual);
+                roots.add(individual);
+            }
+        }
+
+        saturated = true;
+    }
+
+    /**
+     * Groups the inferred axioms by individual, each axiom once: a class assertion by
+     * its individual and any other axiom by the first root whose response holds it
+     */
+    private Map<OWLIndividual, Set<OWLAxiom>> groupInferredAxioms() {
+        Map<OWLIndividual, Set<OWLAxiom>> inferredAxioms = new HashMap<>();
+        Set<OWLAxiom> classAxioms = new HashSet<>();
+
+        for (OWLIndividual root : roots) {
+            for (OWLAxiom axiom : responses.get(root)) {
+                if (axiom instanceof OWLClassAssertionAxiom classAssertionAxiom) {
+                    inferredAxioms.computeIfAbsent(classAssertionAxiom.getIndividual(), k -> new HashSet<>()).add(axiom);
+                } else if (classAxioms.add(axiom)) {
+                    inferredAxioms.computeIfAbsent(root, k -> new HashSet<>()).add(axiom);
+                }
+            }
+        }
+
+        return inferredAxioms;
+    }
+
     /**
      * An adapted DFS that for each generate new axioms for the ontology
      * based on the graph of relations.
@@ -218,13 +729,21 @@ public class Saturator {
 
         Set<OWLAxiom> axioms = new HashSet<>();
 
-        graph.get(node).forEach((u, properties) -> {
+        // edges implied by inverse roles are followed like asserted ones. They relate
+        // every pair both ways, so the nested restrictions depend on the visiting order
+        getEdges(node).forEach((u, properties) -> {
             axioms.addAll(createAxiomsFromObjectClasses(node, u, properties));
 
+            Set<OWLAxiom> response = null;
             if (nodes.get(u) == NodeStatus.UNVISITED) {
-                axioms.addAll(createAxiomsFromChain(DFS(u), node, properties, u));
+                response = DFS(u);
             } else if (nodes.get(u) == NodeStatus.VISITED) {
-                axioms.addAll(createAxiomsFromChain(responses.get(u), node, properties, u));
+                response = responses.get(u);
+            }
+
+            if (response != null) {
+                response.addAll(createAxiomsFromChain(response, node, properties, u));
+                axioms.addAll(response);
             }
         });
 
@@ -267,9 +786,7 @@ public class Saturator {
             }
         }
 
-        axioms.addAll(newAxioms);
-
-        return axioms;
+        return newAxioms;
     }
 
     /**
@@ -289,7 +806,9 @@ public class Saturator {
                                                               Set<OWLObjectProperty> properties) {
         ArrayList<OWLAxiom> axioms = new ArrayList<>();
 
-        if (ontology.getClassAssertionAxioms(object).isEmpty()) {
+        Set<OWLClass> classes = classIndex.get(object);
+
+        if (classes == null) {
             OWLClass thingClass = owlDataFactory.getOWLThing();
 
             for (OWLObjectProperty property : properties) {
@@ -300,14 +819,12 @@ public class Saturator {
                 }
             }
         } else {
-            for (OWLClassAssertionAxiom assertionAxiom : ontology.getClassAssertionAxioms(object)) {
-                for (OWLClass owlClass : assertionAxiom.getClassesInSignature()) {
-                    for (OWLObjectProperty property : properties) {
-                        if (saturationMode == SaturationMode.Assertional) {
-                            axioms.add(createClassAssertionAxiom(property, owlClass, subject));
-                        } else {
-                            axioms.addAll(createEquivalentClassesAxiom(property, owlClass));
-                        }
+            for (OWLClass owlClass : classes) {
+                for (OWLObjectProperty property : properties) {
+                    if (saturationMode == SaturationMode.Assertional) {
+                        axioms.add(createClassAssertionAxiom(property, owlClass, subject));
+                    } else {
+                        axioms.addAll(createEquivalentClassesAxiom(property, owlClass));
                     }
                 }
             }
@@ -0,0 +1,856 @@
+package br.usp.ime.ontosat;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.model.parameters.Imports;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+/**
+ * Versioned binary snapshot of the saturator state. <br/>
+ *
+ * A snapshot stores the interned individual, property and class tables, the
+ * adjacency of the relation's graph, the named classes of each individual and,
+ * if the saturation was already performed, the inferred axioms, each stored once
+ * under its individual. All references are written as indexes into the tables, so
+ * loading a snapshot only decodes the IRIs once and reads the remaining sections as
+ * plain integers through a buffered channel. The sections are decoded eagerly into
+ * the maps used by the {@link Saturator}, hence loading still allocates the graph;
+ * what it saves is parsing the source files, when they are checked by their hash,
+ * building the graph and, after a saturation, the DFS.
+ * <pre>
+ * header     : magic (int), version (int), mode (byte), has results (byte),
+ *              fingerprint of the source axioms (long), hash of the source files (long)
+ * tables     : named individuals, anonymous individuals (node IDs), properties
+ *              and classes (count + length-prefixed UTF-8 strings)
+ * adjacency  : for each named individual, degree + (target, property count, properties...)
+ * classes    : for each individual of the tables, class count (-1 if unasserted) + classes...
+ * roles      : property count + (IRI, word count, closure words...)
+ * results    : for each named individual, axiom count + (kind, axiom...)
+ * </pre>
+ */
+final class SaturatorSnapshot {
+
+    // region attributes
+
+    private static final int MAGIC = 0x4F534154; // "OSAT"
+
+    static final int VERSION = 1;
+
+    private static final byte CLASS_ASSERTION = 0;
+    private static final byte CLASS_DECLARATION = 1;
+    private static final byte CLASS_EQUIVALENCE = 2;
+
+    /**
+     * The {@link #sourceHash(List)} of a snapshot saved without its source files
+     */
+    static final long NO_SOURCES = 0;
+
+    Saturator.SaturationMode saturationMode;
+
+    /**
+     * The {@link #fingerprint(OWLOntology)} of the ontology the snapshot was saved from
+     */
+    long fingerprint;
+
+    /**
+     * The {@link #sourceHash(List)} of the files the snapshot was saved from
+     */
+    long sourceHash;
+
+    List<OWLNamedIndividual> individuals;
+
+    Map<OWLIndividual, Map<OWLIndividual, Set<OWLObjectProperty>>> graph;
+
+    Map<OWLIndividual, Set<OWLClass>> classIndex;
+
+    RoleIndex roleIndex;
+
+    /**
+     * The inferred axioms of each named individual: its class assertions and the class
+     * axioms first found in its response. Null if the saturation was not performed yet.
+     */
+    Map<OWLIndividual, Set<OWLAxiom>> inferredAxioms;
+
+    // endregion
+
+    /**
+     * Computes an order-independent fingerprint of the axioms a snapshot is built from:
+     * the class and role assertions of the ontology and the role axioms of its imports
+     * closure. Each entity is hashed once from its IRI and each axiom from the hashes
+     * of its entities, so the axioms are not rendered. Anonymous individuals get new
+     * node IDs whenever the ontology is parsed, so they are all hashed alike.
+     * @param ontology The source ontology
+     * @return The sum of the hashes of the axioms
+     */
+    static long fingerprint(OWLOntology ontology) {
+        Fingerprint fingerprint = new Fingerprint();
+
+        // the class index only keeps the named classes of a class assertion
+        for (OWLClassAssertionAxiom axiom : ontology.getAxioms(AxiomType.CLASS_ASSERTION)) {
+            long classes = 0;
+            for (OWLClass owlClass : axiom.getClassesInSignature()) {
+                classes += fingerprint.hashEntity(owlClass);
+            }
+
+            fingerprint.add(AxiomType.CLASS_ASSERTION, fingerprint.hash(axiom.getIndividual()), classes);
+        }
+
+        for (OWLObjectPropertyAssertionAxiom axiom : ontology.getAxioms(AxiomType.OBJECT_PROPERTY_ASSERTION)) {
+            fingerprint.add(AxiomType.OBJECT_PROPERTY_ASSERTION,
+                    fingerprint.hash(axiom.getProperty()),
+                    fingerprint.hash(axiom.getSubject()),
+                    fingerprint.hash(axiom.getObject()));
+        }
+
+        for (OWLSubObjectPropertyOfAxiom axiom : ontology.getAxioms(AxiomType.SUB_OBJECT_PROPERTY, Imports.INCLUDED)) {
+            fingerprint.add(AxiomType.SUB_OBJECT_PROPERTY,
+                    fingerprint.hash(axiom.getSubProperty()),
+                    fingerprint.hash(axiom.getSuperProperty()));
+        }
+
+        for (OWLEquivalentObjectPropertiesAxiom axiom : ontology.getAxioms(AxiomType.EQUIVALENT_OBJECT_PROPERTIES, Imports.INCLUDED)) {
+            long properties = 0;
+            for (OWLObjectPropertyExpression property : axiom.getProperties()) {
+                properties += fingerprint.hash(property);
+            }
+
+            fingerprint.add(AxiomType.EQUIVALENT_OBJECT_PROPERTIES, properties);
+        }
+
+        for (OWLInverseObjectPropertiesAxiom axiom : ontology.getAxioms(AxiomType.INVERSE_OBJECT_PROPERTIES, Imports.INCLUDED)) {
+            fingerprint.add(AxiomType.INVERSE_OBJECT_PROPERTIES,
+                    fingerprint.hash(axiom.getFirstProperty()) + fingerprint.hash(axiom.getSecondProperty()));
+        }
+
+        for (OWLSymmetricObjectPropertyAxiom axiom : ontology.getAxioms(AxiomType.SYMMETRIC_OBJECT_PROPERTY, Imports.INCLUDED)) {
+            fingerprint.add(AxiomType.SYMMETRIC_OBJECT_PROPERTY, fingerprint.hash(axiom.getProperty()));
+        }
+
+        return fingerprint.value;
+    }
+
+    /**
+     * Hashes the bytes of the source files, in order, so a snapshot can be checked
+     * against them without parsing them. CRC32C is an intrinsic of the JVM, so the
+     * files are read at about the speed of the disk.
+     * @param sourceFiles The files the ontology was parsed from
+     * @return The hash, or {@link #NO_SOURCES} if there are no files
+     * @throws IOException If a file cannot be read
+     */
+    static long sourceHash(List<File> sourceFiles) throws IOException {
+        if (sourceFiles.isEmpty()) {
+            return NO_SOURCES;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        long hash = 0xcbf29ce484222325L;
+
+        for (File file : sourceFiles) {
+            CRC32C crc = new CRC32C();
+            long length = 0;
+
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                int read;
+                while ((read = channel.read(buffer.clear())) >= 0) {
+                    crc.update(buffer.flip());
+                    length += read;
+                }
+            }
+
+            hash = mix((hash ^ crc.getValue() ^ length << 32) * 0x100000001b3L);
+        }
+
+        return hash == NO_SOURCES ? 1 : hash;
+    }
+
+    /**
+     * Sum of the hashes of the axioms added to it. The hashes of the entities are
+     * interned, so each IRI is hashed once however many axioms refer to it.
+     */
+    private static final class Fingerprint {
+        private static final long ANONYMOUS = SaturatorSnapshot.hash("_:");
+        private static final long INVERSE = SaturatorSnapshot.hash("inverse");
+
+        private final Map<OWLEntity, Long> entityHashes = new HashMap<>();
+
+        private long value;
+
+        void add(AxiomType<?> type, long... operands) {
+            long hash = SaturatorSnapshot.hash(type.getName());
+            for (long operand : operands) {
+                hash = mix((hash ^ operand) * 0x100000001b3L);
+            }
+
+            value += hash;
+        }
+
+        long hash(OWLIndividual individual) {
+            return individual.isAnonymous() ? ANONYMOUS : hashEntity(individual.asOWLNamedIndividual());
+        }
+
+        long hash(OWLObjectPropertyExpression property) {
+            if (property.isAnonymous()) {
+                return mix(INVERSE ^ hashEntity(property.getNamedProperty()));
+            }
+            return hashEntity(property.asOWLObjectProperty());
+        }
+
+        long hashEntity(OWLEntity entity) {
+            return entityHashes.computeIfAbsent(entity, k -> SaturatorSnapshot.hash(k.getIRI().toString()));
+        }
+    }
+
+    /**
+     * FNV-1a over the characters of the value, followed by a mix of the bits so that
+     * the sum of the hashes stays well distributed
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    // region write
+
+    /**
+     * Writes the snapshot at the specified file, overwriting it if it already exists
+     * @param file Destination file
+     * @throws IOException If the file cannot be written
+     */
+    void write(File file) throws IOException {
+        Table<OWLIndividual> individualTable = new Table<>();
+        Table<OWLObjectProperty> propertyTable = new Table<>();
+        Table<OWLClass> classTable = new Table<>();
+
+        // the named individuals come first, in the order of the DFS, followed by the
+        // anonymous ones, which only appear as objects of edges or in class assertions
+        individuals.forEach(individualTable::intern);
+
+        // interns every entity up front, since the tables are written before
+        // the sections referencing them
+        for (OWLNamedIndividual individual : individuals) {
+            graph.get(individual).forEach((object, properties) -> {
+                individualTable.intern(object);
+                properties.forEach(propertyTable::intern);
+            });
+        }
+
+        classIndex.forEach((individual, classes) -> {
+            individualTable.intern(individual);
+            classes.forEach(classTable::intern);
+        });
+
+        List<OWLIndividual> anonymousIndividuals = individualTable.values.subList(individuals.size(), individualTable.values.size());
+
+        if (inferredAxioms != null) {
+            for (Set<OWLAxiom> axioms : inferredAxioms.values()) {
+                for (OWLAxiom axiom : axioms) {
+                    internAxiom(axiom, propertyTable, classTable);
+                }
+            }
+        }
+
+        try (ChannelWriter writer = new ChannelWriter(file)) {
+            writer.writeInt(MAGIC);
+            writer.writeInt(VERSION);
+            writer.writeByte(saturationMode.ordinal());
+            writer.writeByte(inferredAxioms != null ? 1 : 0);
+            writer.writeLong(fingerprint);
+            writer.writeLong(sourceHash);
+
+            writer.writeInt(individuals.size());
+            for (OWLNamedIndividual individual : individuals) {
+                writer.writeString(individual.getIRI().toString());
+            }
+
+            writer.writeInt(anonymousIndividuals.size());
+            for (OWLIndividual individual : anonymousIndividuals) {
+                writer.writeString(individual.asOWLAnonymousIndividual().getID().getID());
+            }
+
+            writer.writeInt(propertyTable.values.size());
+            for (OWLObjectProperty property : propertyTable.values) {
+                writer.writeString(property.getIRI().toString());
+            }
+
+            writer.writeInt(classTable.values.size());
+            for (OWLClass owlClass : classTable.values) {
+                writer.writeString(owlClass.getIRI().toString());
+            }
+
+            for (OWLNamedIndividual individual : individuals) {
+                Map<OWLIndividual, Set<OWLObjectProperty>> edges = graph.get(individual);
+
+                writer.writeInt(edges.size());
+                for (Map.Entry<OWLIndividual, Set<OWLObjectProperty>> edge : edges.entrySet()) {
+                    writer.writeInt(individualTable.indexOf(edge.getKey()));
+                    writer.writeInt(edge.getValue().size());
+
+                    for (OWLObjectProperty property : edge.getValue()) {
+                        writer.writeInt(propertyTable.indexOf(property));
+                    }
+                }
+            }
+
+            for (OWLIndividual individual : individualTable.values) {
+                Set<OWLClass> classes = classIndex.get(individual);
+                if (classes == null) {
+                    writer.writeInt(-1);
+                    continue;
+                }
+
+                writer.writeInt(classes.size());
+                for (OWLClass owlClass : classes) {
+                    writer.writeInt(classTable.indexOf(owlClass));
+                }
+            }
+
+            // a trivial role index is written as an empty one
+            int roleCount = roleIndex.isTrivial() ? 0 : roleIndex.properties.size();
+            writer.writeInt(roleCount);
+            for (int i = 0; i < roleCount; i++) {
+                writer.writeString(roleIndex.properties.get(i).getIRI().toString());
+
+                long[] words = roleIndex.closures[i].toLongArray();
+                writer.writeInt(words.length);
+                for (long word : words) {
+                    writer.writeLong(word);
+                }
+            }
+
+            if (inferredAxioms != null) {
+                for (OWLNamedIndividual individual : individuals) {
+                    Set<OWLAxiom> axioms = inferredAxioms.getOrDefault(individual, Collections.emptySet());
+
+                    writer.writeInt(axioms.size());
+                    for (OWLAxiom axiom : axioms) {
+                        writeAxiom(writer, axiom, propertyTable, classTable);
+                    }
+                }
+            }
+
+            writer.commit();
+        }
+    }
+
+    private static void internAxiom(OWLAxiom axiom, Table<OWLObjectProperty> propertyTable, Table<OWLClass> classTable) {
+        if (axiom instanceof OWLClassAssertionAxiom) {
+            internChain(((OWLClassAssertionAxiom) axiom).getClassExpression(), propertyTable, classTable);
+        } else if (axiom instanceof OWLDeclarationAxiom) {
+            classTable.intern(((OWLDeclarationAxiom) axiom).getEntity().asOWLClass());
+        } else if (axiom instanceof OWLEquivalentClassesAxiom) {
+            OWLEquivalentClassesAxiom equivalentClassesAxiom = (OWLEquivalentClassesAxiom) axiom;
+            classTable.intern(getNamedClass(equivalentClassesAxiom));
+            internChain(getRestriction(equivalentClassesAxiom), propertyTable, classTable);
+        } else {
+            throw new IllegalStateException("Unsupported axiom in snapshot: " + axiom);
+        }
+    }
+
+    private static void internChain(OWLClassExpression expression,
+                                    Table<OWLObjectProperty> propertyTable,
+                                    Table<OWLClass> classTable) {
+        while (expression instanceof OWLObjectSomeValuesFrom) {
+            OWLObjectSomeValuesFrom restriction = (OWLObjectSomeValuesFrom) expression;
+            propertyTable.intern(restriction.getProperty().asOWLObjectProperty());
+            expression = restriction.getFiller();
+        }
+
+        classTable.intern(expression.asOWLClass());
+    }
+
+    /**
+     * Writes an inferred axiom. The individual of a class assertion is the one the
+     * axiom is written under, so it is not written again.
+     */
+    private static void writeAxiom(ChannelWriter writer,
+                                   OWLAxiom axiom,
+                                   Table<OWLObjectProperty> propertyTable,
+                                   Table<OWLClass> classTable) throws IOException {
+        if (axiom instanceof OWLClassAssertionAxiom) {
+            OWLClassAssertionAxiom classAssertionAxiom = (OWLClassAssertionAxiom) axiom;
+
+            writer.writeByte(CLASS_ASSERTION);
+            writeChain(writer, classAssertionAxiom.getClassExpression(), propertyTable, classTable);
+        } else if (axiom instanceof OWLDeclarationAxiom) {
+            writer.writeByte(CLASS_DECLARATION);
+            writer.writeInt(classTable.indexOf(((OWLDeclarationAxiom) axiom).getEntity().asOWLClass()));
+        } else {
+            // an equivalence between the new named class and the restriction it stands for,
+            // see Saturator#createEquivalentClassesAxiom
+            OWLEquivalentClassesAxiom equivalentClassesAxiom = (OWLEquivalentClassesAxiom) axiom;
+
+            writer.writeByte(CLASS_EQUIVALENCE);
+            writer.writeInt(classTable.indexOf(getNamedClass(equivalentClassesAxiom)));
+            writeChain(writer, getRestriction(equivalentClassesAxiom), propertyTable, classTable);
+        }
+    }
+
+    private static OWLClass getNamedClass(OWLEquivalentClassesAxiom axiom) {
+        for (OWLClassExpression expression : axiom.getOperandsAsList()) {
+            if (expression instanceof OWLClass) {
+                return (OWLClass) expression;
+            }
+        }
+        throw new IllegalStateException("Unsupported axiom in snapshot: " + axiom);
+    }
+
+    private static OWLClassExpression getRestriction(OWLEquivalentClassesAxiom axiom) {
+        for (OWLClassExpression expression : axiom.getOperandsAsList()) {
+            if (expression instanceof OWLObjectSomeValuesFrom) {
+                return expression;
+            }
+        }
+        throw new IllegalStateException("Unsupported axiom in snapshot: " + axiom);
+    }
+
+    /**
+     * Writes a nested restriction <b>"r1 some (r2 some (... C))"</b> as the number of
+     * properties, the properties from the outermost to the innermost and the class C
+     */
+    private static void writeChain(ChannelWriter writer,
+                                   OWLClassExpression expression,
+                                   Table<OWLObjectProperty> propertyTable,
+                                   Table<OWLClass> classTable) throws IOException {
+        List<OWLObjectProperty> properties = new ArrayList<>();
+        while (expression instanceof OWLObjectSomeValuesFrom) {
+            OWLObjectSomeValuesFrom restriction = (OWLObjectSomeValuesFrom) expression;
+            properties.add(restriction.getProperty().asOWLObjectProperty());
+            expression = restriction.getFiller();
+        }
+
+        writer.writeInt(properties.size());
+        for (OWLObjectProperty property : properties) {
+            writer.writeInt(propertyTable.indexOf(property));
+        }
+        writer.writeInt(classTable.indexOf(expression.asOWLClass()));
+    }
+
+    // endregion
+
+    // region read
+
+    /**
+     * Reads a snapshot previously written by {@link #write(File)}
+     * @param file Snapshot file
+     * @return The restored snapshot
+     * @throws IOException If the file cannot be read, is not a snapshot, has an
+     * unsupported version or is corrupted
+     */
+    static SaturatorSnapshot read(File file) throws IOException {
+        OWLDataFactory owlDataFactory = OWLManager.getOWLDataFactory();
+        SaturatorSnapshot snapshot = new SaturatorSnapshot();
+
+        try (ChannelReader reader = new ChannelReader(file)) {
+            if (reader.readInt() != MAGIC) {
+                throw new IOException("Not an OntoSat snapshot: " + file);
+            }
+
+            int version = reader.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+
+            byte mode = reader.readByte();
+            if (mode < 0 || mode >= Saturator.SaturationMode.values().length) {
+                throw corrupted("unknown saturation mode " + mode);
+            }
+
+            snapshot.saturationMode = Saturator.SaturationMode.values()[mode];
+            boolean hasResults = reader.readByte() != 0;
+            snapshot.fingerprint = reader.readLong();
+            snapshot.sourceHash = reader.readLong();
+
+            OWLNamedIndividual[] namedIndividuals = new OWLNamedIndividual[reader.readCount(4)];
+            for (int i = 0; i < namedIndividuals.length; i++) {
+                namedIndividuals[i] = owlDataFactory.getOWLNamedIndividual(IRI.create(reader.readString()));
+            }
+
+            int anonymousCount = reader.readCount(4);
+            OWLIndividual[] individuals = Arrays.copyOf(namedIndividuals, namedIndividuals.length + anonymousCount, OWLIndividual[].class);
+            for (int i = namedIndividuals.length; i < individuals.length; i++) {
+                individuals[i] = owlDataFactory.getOWLAnonymousIndividual(reader.readString());
+            }
+
+            OWLObjectProperty[] properties = new OWLObjectProperty[reader.readCount(4)];
+            for (int i = 0; i < properties.length; i++) {
+                properties[i] = owlDataFactory.getOWLObjectProperty(IRI.create(reader.readString()));
+            }
+
+            OWLClass[] classes = new OWLClass[reader.readCount(4)];
+            for (int i = 0; i < classes.length; i++) {
+                classes[i] = owlDataFactory.getOWLClass(IRI.create(reader.readString()));
+            }
+
+            snapshot.individuals = Arrays.asList(namedIndividuals);
+            snapshot.graph = new HashMap<>();
+            snapshot.classIndex = new HashMap<>();
+
+            for (OWLNamedIndividual individual : namedIndividuals) {
+                int degree = reader.readCount(8);
+                Map<OWLIndividual, Set<OWLObjectProperty>> edges = new HashMap<>();
+
+                for (int i = 0; i < degree; i++) {
+                    OWLIndividual target = individuals[reader.readIndex(individuals.length)];
+                    int propertyCount = reader.readCount(4);
+
+                    Set<OWLObjectProperty> edgeProperties = new HashSet<>();
+                    for (int j = 0; j < propertyCount; j++) {
+                        edgeProperties.add(properties[reader.readIndex(properties.length)]);
+                    }
+
+                    edges.put(target, edgeProperties);
+                }
+
+                snapshot.graph.put(individual, edges);
+            }
+
+            for (OWLIndividual individual : individuals) {
+                int classCount = reader.readInt();
+                if (classCount == -1) {
+                    continue;
+                }
+                reader.checkCount(classCount, 4);
+
+                Set<OWLClass> individualClasses = new HashSet<>();
+                for (int i = 0; i < classCount; i++) {
+                    individualClasses.add(classes[reader.readIndex(classes.length)]);
+                }
+
+                snapshot.classIndex.put(individual, individualClasses);
+            }
+
+            List<OWLObjectProperty> roles = new ArrayList<>();
+            List<BitSet> closures = new ArrayList<>();
+
+            int roleCount = reader.readCount(8);
+            for (int i = 0; i < roleCount; i++) {
+                roles.add(owlDataFactory.getOWLObjectProperty(IRI.create(reader.readString())));
+
+                long[] words = new long[reader.readCount(8)];
+                for (int j = 0; j < words.length; j++) {
+                    words[j] = reader.readLong();
+                }
+
+                // the closure may only refer to the roles of the index and their inverses
+                BitSet closure = BitSet.valueOf(words);
+                if (closure.length() > 2 * roleCount) {
+                    throw corrupted("role closure out of bounds");
+                }
+                closures.add(closure);
+            }
+
+            snapshot.roleIndex = new RoleIndex(roles, closures.toArray(new BitSet[0]));
+
+            if (hasResults) {
+                snapshot.inferredAxioms = new HashMap<>(2 * namedIndividuals.length);
+                for (OWLNamedIndividual individual : namedIndividuals) {
+                    int axiomCount = reader.readCount(5);
+
+                    Set<OWLAxiom> axioms = new HashSet<>();
+                    for (int i = 0; i < axiomCount; i++) {
+                        axioms.add(readAxiom(reader, owlDataFactory, individual, properties, classes));
+                    }
+
+                    snapshot.inferredAxioms.put(individual, axioms);
+                }
+            }
+        }
+
+        return snapshot;
+    }
+
+    private static OWLAxiom readAxiom(ChannelReader reader,
+                                      OWLDataFactory owlDataFactory,
+                                      OWLNamedIndividual individual,
+                                      OWLObjectProperty[] properties,
+                                      OWLClass[] classes) throws IOException {
+        byte kind = reader.readByte();
+
+        switch (kind) {
+            case CLASS_ASSERTION -> {
+                return owlDataFactory.getOWLClassAssertionAxiom(readChain(reader, owlDataFactory, properties, classes), individual);
+            }
+            case CLASS_DECLARATION -> {
+                return owlDataFactory.getOWLDeclarationAxiom(classes[reader.readIndex(classes.length)]);
+            }
+            case CLASS_EQUIVALENCE -> {
+                OWLClass newClass = classes[reader.readIndex(classes.length)];
+                return owlDataFactory.getOWLEquivalentClassesAxiom(newClass, readChain(reader, owlDataFactory, properties, classes));
+            }
+            default -> throw corrupted("unknown axiom kind " + kind);
+        }
+    }
+
+    private static OWLClassExpression readChain(ChannelReader reader,
+                                                OWLDataFactory owlDataFactory,
+                                                OWLObjectProperty[] properties,
+                                                OWLClass[] classes) throws IOException {
+        OWLObjectProperty[] chain = new OWLObjectProperty[reader.readCount(4)];
+        for (int i = 0; i < chain.length; i++) {
+            chain[i] = properties[reader.readIndex(properties.length)];
+        }
+
+        // the restriction is rebuilt from the innermost class to the outermost property
+        OWLClassExpression expression = classes[reader.readIndex(classes.length)];
+        for (int i = chain.length - 1; i >= 0; i--) {
+            expression = owlDataFactory.getOWLObjectSomeValuesFrom(chain[i], expression);
+        }
+
+        return expression;
+    }
+
+    private static IOException corrupted(String detail) {
+        return new IOException("Corrupted snapshot: " + detail);
+    }
+
+    // endregion
+
+    // region io
+
+    /**
+     * Assigns sequential indexes to the values in order of first appearance
+     */
+    private static final class Table<T> {
+        private final Map<T, Integer> indexes = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        void intern(T value) {
+            if (!indexes.containsKey(value)) {
+                indexes.put(value, values.size());
+                values.add(value);
+            }
+        }
+
+        int indexOf(T value) {
+            return indexes.get(value);
+        }
+    }
+
+    /**
+     * Buffered writer over a file channel. The snapshot is written to a temporary
+     * file next to the target, which only replaces the target on {@link #commit()},
+     * so a failed write or a snapshot being read from the target leave it intact.
+     */
+    private static final class ChannelWriter implements Closeable {
+        private static final int BUFFER_SIZE = 1 << 20;
+
+        private final Path target;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        ChannelWriter(File file) throws IOException {
+            target = file.toPath().toAbsolutePath();
+            temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+        }
+
+        void writeByte(int value) throws IOException {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+
+        void writeInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void writeLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Flushes the snapshot and moves it into place, replacing the target
+         */
+        void commit() throws IOException {
+            flush();
+            channel.close();
+
+            try {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                channel.close();
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * Buffered reader over a file channel. The file is read through a heap buffer with
+     * positional reads instead of being mapped, so no mapping outlives the reader and
+     * the file can be replaced as soon as it is closed. Counts and indexes are checked
+     * against the size of the file and of the tables, so a corrupted snapshot fails
+     * with an {@link IOException} instead of allocating or indexing out of bounds.
+     */
+    private static final class ChannelReader implements Closeable {
+        private static final int BUFFER_SIZE = 1 << 20;
+
+        private final FileChannel channel;
+        private final long size;
+
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long bufferStart;
+
+        ChannelReader(File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            size = channel.size();
+            buffer.limit(0);
+        }
+
+        byte readByte() throws IOException {
+            ensure(1);
+            return buffer.get();
+        }
+
+        int readInt() throws IOException {
+            ensure(4);
+            return buffer.getInt();
+        }
+
+        long readLong() throws IOException {
+            ensure(8);
+            return buffer.getLong();
+        }
+
+        /**
+         * Reads the number of entries of a section
+         * @param entrySize The minimum size in bytes of each entry
+         */
+        int readCount(int entrySize) throws IOException {
+            return checkCount(readInt(), entrySize);
+        }
+
+        int checkCount(int count, int entrySize) throws IOException {
+            if (count < 0 || (long) count * entrySize > remaining()) {
+                throw corrupted("invalid count " + count);
+            }
+            return count;
+        }
+
+        /**
+         * Reads an index into a table
+         * @param bound The size of the table
+         */
+        int readIndex(int bound) throws IOException {
+            int index = readInt();
+            if (index < 0 || index >= bound) {
+                throw corrupted("index " + index + " out of bounds");
+            }
+            return index;
+        }
+
+        String readString() throws IOException {
+            int length = readCount(1);
+            ensure(length);
+
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private long remaining() {
+            return size - bufferStart - buffer.position();
+        }
+
+        /**
+         * Refills the buffer from the current position if less than the specified
+         * bytes are left in it. The buffer only grows for strings larger than it.
+         */
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+
+            long position = bufferStart + buffer.position();
+            if (position + bytes > size) {
+                throw new EOFException("Unexpected end of snapshot");
+            }
+
+            if (buffer.capacity() < bytes) {
+                buffer = ByteBuffer.allocate(bytes);
+            }
+
+            bufferStart = position;
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), size - position));
+
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("Unexpected end of snapshot");
+                }
+            }
+            buffer.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // endregion
+}
@@ -0,0 +1,246 @@
+package br.usp.ime.ontosat.utils;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.expression.OWLEntityChecker;
+import org.semanticweb.owlapi.expression.ShortFormEntityChecker;
+import org.semanticweb.owlapi.io.OWLParserException;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.util.BidirectionalShortFormProviderAdapter;
+import org.semanticweb.owlapi.util.SimpleShortFormProvider;
+import org.semanticweb.owlapi.util.mansyntax.ManchesterOWLSyntaxParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Bulk loader of files with one Manchester Syntax axiom per line. <br/>
+ *
+ * The short form index over the imports closure of the ontology is built once,
+ * when the loader is created, and shared by every call. Files are read through a
+ * buffered channel in batches of lines, and the batches are parsed in parallel by
+ * a pool of threads that only lives for the duration of the call, each thread with
+ * its own parser. Since the parsers hold the ontology, no thread outlives the call
+ * keeping it reachable. Lines that cannot be parsed are reported with
+ * their line number instead of aborting the load.
+ */
+public class ManchesterSyntaxLoader {
+
+    // region attributes
+
+    private static Logger logger = LoggerFactory.getLogger(ManchesterSyntaxLoader.class);
+
+    private static final int BATCH_SIZE = 1024;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximum number of batches being parsed at the same time, which bounds the
+     * memory used while reading large files
+     */
+    private static final int MAX_PENDING_BATCHES = 4 * THREAD_COUNT;
+
+    private final OWLOntology ontology;
+
+    private final OWLEntityChecker entityChecker;
+
+    /**
+     * A line that could not be parsed
+     */
+    public static class ParseError {
+        private final long lineNumber;
+        private final String line;
+        private final String message;
+
+        ParseError(long lineNumber, String line, String message) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.message = message;
+        }
+
+        /**
+         * @return The line number, starting at 1
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * The axioms parsed from a file and the lines that could not be parsed,
+     * both in the order they appear in the file
+     */
+    public static class LoadResult {
+        private final List<OWLAxiom> axioms = new ArrayList<>();
+        private final List<ParseError> errors = new ArrayList<>();
+
+        public List<OWLAxiom> getAxioms() {
+            return Collections.unmodifiableList(axioms);
+        }
+
+        public List<ParseError> getErrors() {
+            return Collections.unmodifiableList(errors);
+        }
+
+        public boolean hasErrors() {
+            return !errors.isEmpty();
+        }
+    }
+
+    // endregion
+
+    /**
+     * Initializes the loader building the short form index of the ontology
+     * @param ontology OWL default ontology, whose imports closure provides the entities
+     */
+    public ManchesterSyntaxLoader(OWLOntology ontology) {
+        this.ontology = ontology;
+
+        // the index is not bound to a manager, so it is not updated while
+        // the parsed axioms are added and can be shared among threads
+        var providerAdapter = new BidirectionalShortFormProviderAdapter(ontology.getImportsClosure(), new SimpleShortFormProvider());
+        entityChecker = new ShortFormEntityChecker(providerAdapter);
+    }
+
+    // region public methods
+
+    /**
+     * Parses the specified file. Blank lines are ignored.
+     * @param file File to be parsed
+     * @return A {@link LoadResult} with the parsed axioms and the parsing errors
+     * @throws IOException If the file cannot be read
+     */
+    public LoadResult load(File file) throws IOException {
+        logger.info("Loading axioms from: " + file.getPath());
+
+        LoadResult result = new LoadResult();
+        Deque<CompletableFuture<LoadResult>> pending = new ArrayDeque<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        ThreadLocal<ManchesterOWLSyntaxParser> parsers = ThreadLocal.withInitial(this::createParser);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            List<String> batch = new ArrayList<>(BATCH_SIZE);
+            long firstLine = 1;
+            long lineNumber = 0;
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                batch.add(line);
+
+                if (batch.size() == BATCH_SIZE) {
+                    submit(pending, executor, parsers, batch, firstLine, result);
+
+                    batch = new ArrayList<>(BATCH_SIZE);
+                    firstLine = lineNumber + 1;
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                submit(pending, executor, parsers, batch, firstLine, result);
+            }
+
+            // batches are merged in submission order, so the result follows the file
+            while (!pending.isEmpty()) {
+                merge(result, pending.poll().join());
+            }
+        } finally {
+            // the threads die with the executor, and so do their parsers
+            executor.shutdownNow();
+        }
+
+        logger.info("Axioms loaded: {} parsed, {} errors.", result.axioms.size(), result.errors.size());
+        return result;
+    }
+
+    /**
+     * Parses the specified file and adds the parsed axioms to the ontology of this
+     * loader, so it can be given straight to a {@link br.usp.ime.ontosat.Saturator}.
+     * The valid axioms are added even if {@link LoadResult#hasErrors()}, so the caller
+     * decides whether an ontology with the invalid lines left out can be used.
+     * @param file File to be parsed
+     * @return A {@link LoadResult} with the parsed axioms and the parsing errors
+     * @throws IOException If the file cannot be read
+     */
+    public LoadResult loadInto(File file) throws IOException {
+        LoadResult result = load(file);
+        ontology.getOWLOntologyManager().addAxioms(ontology, new HashSet<>(result.axioms));
+
+        return result;
+    }
+
+    // endregion
+
+    // region private methods
+
+    private ManchesterOWLSyntaxParser createParser() {
+        ManchesterOWLSyntaxParser parser = OWLManager.createManchesterParser();
+        parser.setDefaultOntology(ontology);
+        parser.setOWLEntityChecker(entityChecker);
+
+        return parser;
+    }
+
+    private void submit(Deque<CompletableFuture<LoadResult>> pending,
+                        ExecutorService executor,
+                        ThreadLocal<ManchesterOWLSyntaxParser> parsers,
+                        List<String> batch,
+                        long firstLine,
+                        LoadResult result) {
+        pending.add(CompletableFuture.supplyAsync(() -> parse(parsers.get(), batch, firstLine), executor));
+
+        if (pending.size() > MAX_PENDING_BATCHES) {
+            merge(result, pending.poll().join());
+        }
+    }
+
+    private static LoadResult parse(ManchesterOWLSyntaxParser parser, List<String> batch, long firstLine) {
+        LoadResult result = new LoadResult();
+
+        for (int i = 0; i < batch.size(); i++) {
+            String line = batch.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+
+            try {
+                parser.setStringToParse(line);
+                result.axioms.add(parser.parseAxiom());
+            } catch (OWLParserException e) {
+                result.errors.add(new ParseError(firstLine + i, line, e.getMessage()));
+            }
+        }
+
+        return result;
+    }
+
+    private static void merge(LoadResult result, LoadResult batchResult) {
+        result.axioms.addAll(batchResult.axioms);
+        result.errors.addAll(batchResult.errors);
+    }
+
+    // endregion
+}
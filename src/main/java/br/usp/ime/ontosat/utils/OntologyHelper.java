@@ -40,7 +40,9 @@ public class OntologyHelper {
     }
 
     /**
-     * Parse the specified file that should contain Manchester Syntax axioms
+     * Parse the specified file that should contain Manchester Syntax axioms.
+     * For large files use a {@link ManchesterSyntaxLoader}, which reuses the
+     * short form index across calls and parses the lines in parallel.
      * @param ontology OWL default ontology
      * @param file File to be parsed
      * @return A set of the parsed axioms
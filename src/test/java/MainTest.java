@@ -24,9 +24,19 @@ public class MainTest {
             "                   <specifies the path to the input ontology>\r\n" +
             "    -o --saturated-ontology\r\n" +
             "                   <specifies the path where the saturated ontology will be stored>\r\n" +
+            "    -a --assertions\r\n" +
+            "                   <specifies a file with Manchester Syntax axioms, one per line, to be added to the input ontology>\r\n" +
             "    -m --mode\r\n" +
             "                   defines the saturation mode, which can be either \"assertional\" or\r\n" +
-            "                   \"terminological\". The \"assertional\" mode is selected by default\r\n";
+            "                   \"terminological\". The \"assertional\" mode is selected by default\r\n" +
+            "    -e --estimate\r\n" +
+            "                   estimates the size of the saturation without saturating the ontology\r\n" +
+            "    -s --save-snapshot\r\n" +
+            "                   <specifies the path where the binary snapshot of the saturator will be stored>\r\n" +
+            "    -l --load-snapshot\r\n" +
+            "                   <specifies the path to a snapshot of the input ontology to be loaded instead of building the graph>\r\n" +
+            "    -x --inferred-only\r\n" +
+            "                   stores only the inferred axioms, so a snapshot is loaded without parsing the input ontology\r\n";
 
     private static final String headerContent = "OntoSat\n\r\n";
 
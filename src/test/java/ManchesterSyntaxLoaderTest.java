@@ -0,0 +1,109 @@
+import br.usp.ime.ontosat.Saturator;
+import br.usp.ime.ontosat.utils.ManchesterSyntaxLoader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ManchesterSyntaxLoaderTest {
+
+    @Test
+    public void testLoadReportsLineNumbers(@TempDir Path tempDir) throws OWLOntologyCreationException, IOException {
+        OWLOntology ontology = loadOntology("ontologies/005-test.owl");
+
+        Path axiomsFile = tempDir.resolve("axioms.txt");
+        Files.write(axiomsFile, List.of(
+                "b Type: A",
+                "this is not an axiom",
+                "",
+                "a Type: A"));
+
+        ManchesterSyntaxLoader.LoadResult result = new ManchesterSyntaxLoader(ontology).load(axiomsFile.toFile());
+
+        assertEquals(2, result.getAxioms().size());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(2, result.getErrors().get(0).getLineNumber());
+    }
+
+    @Test
+    public void testLoadIntoSaturator(@TempDir Path tempDir) throws OWLOntologyCreationException, IOException {
+        OWLOntology ontology = loadOntology("ontologies/005-test.owl");
+        int axiomCount = ontology.getAxiomCount();
+
+        Path axiomsFile = tempDir.resolve("axioms.txt");
+        Files.write(axiomsFile, List.of("b Type: A"));
+
+        ManchesterSyntaxLoader.LoadResult result = new ManchesterSyntaxLoader(ontology).loadInto(axiomsFile.toFile());
+        OWLOntology saturatedOntology = new Saturator(ontology).saturate();
+
+        assertFalse(result.hasErrors());
+        assertEquals(axiomCount + 1, ontology.getAxiomCount());
+        assertTrue(saturatedOntology.containsAxiom(result.getAxioms().get(0)));
+    }
+
+    @Test
+    public void testLoadManyBatches(@TempDir Path tempDir) throws OWLOntologyCreationException, IOException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+        String namespace = "http://www.semanticweb.org/ontosat/loader#";
+
+        OWLClass classA = factory.getOWLClass(IRI.create(namespace + "A"));
+        List<OWLNamedIndividual> individuals = new ArrayList<>();
+
+        OWLOntology ontology = manager.createOntology();
+        manager.addAxiom(ontology, factory.getOWLDeclarationAxiom(classA));
+        for (int i = 0; i < 1000; i++) {
+            OWLNamedIndividual individual = factory.getOWLNamedIndividual(IRI.create(namespace + "i" + i));
+            individuals.add(individual);
+            manager.addAxiom(ontology, factory.getOWLDeclarationAxiom(individual));
+        }
+
+        // the loader parses batches of 1024 lines and keeps at most four batches per
+        // processor pending, so the file spans more batches than can be pending at once
+        int lineCount = (4 * Runtime.getRuntime().availableProcessors() + 2) * 1024 + 100;
+        List<Long> invalidLines = List.of(1500L, 3000L, 4097L, (long) lineCount);
+        long blankLine = 2048;
+
+        List<String> lines = new ArrayList<>();
+        List<OWLAxiom> expectedAxioms = new ArrayList<>();
+
+        for (long lineNumber = 1; lineNumber <= lineCount; lineNumber++) {
+            if (invalidLines.contains(lineNumber)) {
+                lines.add("line " + lineNumber + " is not an axiom");
+            } else if (lineNumber == blankLine) {
+                lines.add("");
+            } else {
+                OWLNamedIndividual individual = individuals.get((int) (lineNumber % individuals.size()));
+                lines.add(individual.getIRI().getShortForm() + " Type: A");
+                expectedAxioms.add(factory.getOWLClassAssertionAxiom(classA, individual));
+            }
+        }
+
+        Path axiomsFile = tempDir.resolve("axioms.txt");
+        Files.write(axiomsFile, lines);
+
+        ManchesterSyntaxLoader.LoadResult result = new ManchesterSyntaxLoader(ontology).load(axiomsFile.toFile());
+
+        assertEquals(expectedAxioms, result.getAxioms());
+        assertEquals(invalidLines, result.getErrors().stream().map(ManchesterSyntaxLoader.ParseError::getLineNumber).toList());
+        assertEquals("line 3000 is not an axiom", result.getErrors().get(1).getLine());
+    }
+
+    private OWLOntology loadOntology(String resourceName) throws OWLOntologyCreationException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource(resourceName).getFile());
+
+        return OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(file);
+    }
+}
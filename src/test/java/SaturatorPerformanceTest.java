@@ -0,0 +1,351 @@
+import br.usp.ime.ontosat.Saturator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.formats.RDFXMLDocumentFormat;
+import org.semanticweb.owlapi.model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Performance regression harness. <br/>
+ *
+ * Runs the saturator over the test ontologies and over scaled-up copies of them,
+ * recording the time (the fastest of the measured runs), the allocated bytes (the
+ * median) and the peak response size (the largest number of axioms derived for a
+ * single individual) of each case. The results are compared against a baseline file
+ * and a case fails when the time or the allocation exceeds the baseline by more than
+ * the threshold, when the peak response differs from the baseline, since it does not
+ * depend on the machine, or when the case has no baseline. Times below the noise floor
+ * are compared as if they were the floor. No baseline is shipped, as it depends on the
+ * machine: updating the baseline records the results instead of comparing them, and
+ * the recorded file is meant to be committed. Runs through the <b>performanceTest</b>
+ * Gradle task.
+ */
+@Tag("performance")
+public class SaturatorPerformanceTest {
+
+    // region settings
+
+    private static final Path baselinePath = Paths.get(
+            System.getProperty("ontosat.performance.baseline", "src/test/resources/performance/baseline.csv"));
+
+    private static final Path reportPath = Paths.get(
+            System.getProperty("ontosat.performance.report", "build/performance/report.csv"));
+
+    private static final boolean updateBaseline =
+            Boolean.parseBoolean(System.getProperty("ontosat.performance.update", "false"));
+
+    private static final double threshold =
+            Double.parseDouble(System.getProperty("ontosat.performance.threshold", "1.5"));
+
+    private static final int warmups =
+            Integer.parseInt(System.getProperty("ontosat.performance.warmups", "2"));
+
+    private static final int iterations =
+            Integer.parseInt(System.getProperty("ontosat.performance.iterations", "5"));
+
+    private static final String scales = System.getProperty("ontosat.performance.scales", "1,100,1000");
+
+    /**
+     * Measurements below these values are considered noise. Small cases vary by tens
+     * of milliseconds between runs on the same machine, so they only fail past the
+     * floor times the threshold.
+     */
+    private static final long minTimeMillis = 200;
+    private static final long minAllocatedBytes = 1 << 20;
+
+    // endregion
+
+    private static final Map<String, Measurement> baseline = new LinkedHashMap<>();
+
+    private static final Map<String, Measurement> results = new LinkedHashMap<>();
+
+    private record Measurement(long timeMillis, long allocatedBytes, long peakResponse) {
+    }
+
+    // region gear up / tear down
+
+    @BeforeAll
+    public static void loadBaseline() throws IOException {
+        if (!Files.exists(baselinePath)) {
+            return;
+        }
+
+        for (String line : Files.readAllLines(baselinePath)) {
+            if (line.isBlank() || line.startsWith("case,")) {
+                continue;
+            }
+
+            String[] fields = line.split(",");
+            baseline.put(fields[0], new Measurement(
+                    Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3])));
+        }
+    }
+
+    @AfterAll
+    public static void saveResults() throws IOException {
+        writeMeasurements(reportPath, results);
+
+        // cases out of this run, e.g. of other scales, keep their baseline
+        if (updateBaseline) {
+            Map<String, Measurement> updated = new LinkedHashMap<>(baseline);
+            updated.putAll(results);
+            writeMeasurements(baselinePath, updated);
+        }
+    }
+
+    // endregion
+
+    // region tests
+
+    static Stream<Arguments> cases() {
+        ClassLoader classLoader = SaturatorPerformanceTest.class.getClassLoader();
+        File directory = new File(classLoader.getResource("ontologies").getFile());
+
+        String[] names = directory.list((dir, name) -> name.endsWith(".owl") && !name.contains("invalid"));
+        Arrays.sort(names);
+
+        List<Arguments> cases = new ArrayList<>();
+        for (String scale : scales.split(",")) {
+            for (String name : names) {
+                cases.add(Arguments.of("ontologies/" + name, Integer.parseInt(scale.trim())));
+            }
+        }
+
+        return cases.stream();
+    }
+
+    @ParameterizedTest(name = "{0} x{1}")
+    @MethodSource("cases")
+    public void saturatorPerformance(String ontologyResourceName, int scale) throws OWLOntologyCreationException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource(ontologyResourceName).getFile());
+
+        OWLOntology ontology = scale(
+                OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(file), scale);
+        String name = file.getName().replace(".owl", "") + " x" + scale;
+
+        for (int i = 0; i < warmups; i++) {
+            measure(ontology);
+        }
+
+        List<Measurement> measurements = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            measurements.add(measure(ontology));
+        }
+
+        Measurement actual = new Measurement(
+                // the fastest run is the least disturbed by the scheduler and the GC
+                measurements.stream().mapToLong(Measurement::timeMillis).min().orElse(0),
+                median(measurements.stream().mapToLong(Measurement::allocatedBytes).toArray()),
+                measurements.get(0).peakResponse());
+        results.put(name, actual);
+
+        if (updateBaseline) {
+            return;
+        }
+
+        Measurement expected = baseline.get(name);
+        if (expected == null) {
+            fail(String.format("%s: no baseline at %s, record one with -Pperformance.update=true", name, baselinePath));
+        }
+
+        assertWithinThreshold(name, "time (ms)", expected.timeMillis(), actual.timeMillis(), minTimeMillis);
+        assertWithinThreshold(name, "allocated bytes", expected.allocatedBytes(), actual.allocatedBytes(), minAllocatedBytes);
+        assertEquals(expected.peakResponse(), actual.peakResponse(), String.format(
+                "%s: peak response changed from %d to %d", name, expected.peakResponse(), actual.peakResponse()));
+    }
+
+    /**
+     * Restarting from a snapshot must beat saturating again. Both sides start from the
+     * ontology document, as a restart does: the rebuild parses it and runs the DFS, the
+     * restart hashes it and reads the snapshot. Not compared against the baseline.
+     */
+    @Test
+    public void snapshotRestartPerformance(@TempDir Path tempDir)
+            throws OWLOntologyCreationException, OWLOntologyStorageException, IOException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File source = new File(classLoader.getResource("ontologies/100-sample-cade-28.owl").getFile());
+        int scale = Arrays.stream(scales.split(",")).mapToInt(value -> Integer.parseInt(value.trim())).max().orElse(1);
+
+        OWLOntology scaled = scale(OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(source), scale);
+        File file = tempDir.resolve("ontology.owl").toFile();
+        scaled.getOWLOntologyManager().saveOntology(scaled, new RDFXMLDocumentFormat(), IRI.create(file.toURI()));
+
+        File snapshotFile = tempDir.resolve("saturator.snapshot").toFile();
+        Saturator saved = new Saturator(scaled);
+        Set<OWLAxiom> expected = saved.infer();
+        saved.saveSnapshot(snapshotFile, List.of(file));
+
+        long rebuildMillis = Long.MAX_VALUE;
+        long restartMillis = Long.MAX_VALUE;
+        for (int i = 0; i < warmups + iterations; i++) {
+            long start = System.nanoTime();
+            Set<OWLAxiom> rebuilt = new Saturator(
+                    OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(file)).infer();
+            long rebuild = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            Set<OWLAxiom> restarted = Saturator.loadSnapshot(snapshotFile, List.of(file), null).infer();
+            long restart = (System.nanoTime() - start) / 1_000_000;
+
+            assertEquals(expected, rebuilt);
+            assertEquals(expected, restarted);
+
+            if (i >= warmups) {
+                rebuildMillis = Math.min(rebuildMillis, rebuild);
+                restartMillis = Math.min(restartMillis, restart);
+            }
+        }
+
+        System.out.printf("snapshot restart x%d: rebuild %d ms, restart %d ms, snapshot %d bytes%n",
+                scale, rebuildMillis, restartMillis, snapshotFile.length());
+        assertTrue(restartMillis < rebuildMillis, String.format(
+                "restart took %d ms, rebuild %d ms", restartMillis, rebuildMillis));
+    }
+
+    // endregion
+
+    // region private methods
+
+    private static Measurement measure(OWLOntology ontology) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Map<Long, Long> allocatedBefore = getAllocatedBytes(threads);
+
+        long start = System.nanoTime();
+
+        Saturator saturator = new Saturator(ontology);
+        saturator.saturate();
+
+        long timeMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // sums the allocation of every thread, since the graph is built by the common pool
+        long allocatedBytes = 0;
+        for (Map.Entry<Long, Long> entry : getAllocatedBytes(threads).entrySet()) {
+            allocatedBytes += entry.getValue() - allocatedBefore.getOrDefault(entry.getKey(), 0L);
+        }
+
+        Map<OWLIndividual, Long> responseSizes = new HashMap<>();
+        for (OWLAxiom axiom : saturator.getInferredAxioms()) {
+            if (axiom instanceof OWLClassAssertionAxiom) {
+                responseSizes.merge(((OWLClassAssertionAxiom) axiom).getIndividual(), 1L, Long::sum);
+            }
+        }
+        long peakResponse = responseSizes.values().stream().mapToLong(Long::longValue).max().orElse(0);
+
+        return new Measurement(timeMillis, allocatedBytes, peakResponse);
+    }
+
+    private static Map<Long, Long> getAllocatedBytes(com.sun.management.ThreadMXBean threads) {
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = threads.getThreadAllocatedBytes(ids);
+
+        Map<Long, Long> allocatedBytes = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) {
+                allocatedBytes.put(ids[i], bytes[i]);
+            }
+        }
+        return allocatedBytes;
+    }
+
+    /**
+     * Copies the ABox of the ontology the specified number of times, renaming the
+     * named individuals of each copy. The other axioms are kept once.
+     */
+    private static OWLOntology scale(OWLOntology source, int factor) throws OWLOntologyCreationException {
+        if (factor == 1) {
+            return source;
+        }
+
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+        Set<OWLAxiom> axioms = new HashSet<>();
+
+        for (OWLAxiom axiom : source.getAxioms()) {
+            boolean individualAxiom = axiom instanceof OWLClassAssertionAxiom
+                    || axiom instanceof OWLObjectPropertyAssertionAxiom
+                    || axiom instanceof OWLDeclarationAxiom declaration && declaration.getEntity().isOWLNamedIndividual();
+
+            if (!individualAxiom) {
+                axioms.add(axiom);
+                continue;
+            }
+
+            for (int copy = 0; copy < factor; copy++) {
+                if (axiom instanceof OWLClassAssertionAxiom classAssertion) {
+                    axioms.add(factory.getOWLClassAssertionAxiom(
+                            classAssertion.getClassExpression(),
+                            copyOf(factory, classAssertion.getIndividual(), copy)));
+                } else if (axiom instanceof OWLObjectPropertyAssertionAxiom propertyAssertion) {
+                    axioms.add(factory.getOWLObjectPropertyAssertionAxiom(
+                            propertyAssertion.getProperty(),
+                            copyOf(factory, propertyAssertion.getSubject(), copy),
+                            copyOf(factory, propertyAssertion.getObject(), copy)));
+                } else {
+                    OWLNamedIndividual individual = ((OWLDeclarationAxiom) axiom).getEntity().asOWLNamedIndividual();
+                    axioms.add(factory.getOWLDeclarationAxiom(
+                            copyOf(factory, individual, copy).asOWLNamedIndividual()));
+                }
+            }
+        }
+
+        OWLOntology scaled = manager.createOntology();
+        manager.addAxioms(scaled, axioms);
+        return scaled;
+    }
+
+    private static OWLIndividual copyOf(OWLDataFactory factory, OWLIndividual individual, int copy) {
+        if (copy == 0 || individual.isAnonymous()) {
+            return individual;
+        }
+        return factory.getOWLNamedIndividual(IRI.create(individual.asOWLNamedIndividual().getIRI() + "-" + copy));
+    }
+
+    private static long median(long[] values) {
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+
+    private static void assertWithinThreshold(String name, String metric, long expected, long actual, long noise) {
+        double limit = Math.max(expected, noise) * threshold;
+
+        assertTrue(Math.max(actual, noise) <= limit, String.format(
+                "%s: %s regressed from %d to %d (threshold %.2fx)", name, metric, expected, actual, threshold));
+    }
+
+    private static void writeMeasurements(Path path, Map<String, Measurement> measurements) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("case,time_ms,allocated_bytes,peak_response");
+        measurements.forEach((name, measurement) -> lines.add(String.join(",",
+                name,
+                String.valueOf(measurement.timeMillis()),
+                String.valueOf(measurement.allocatedBytes()),
+                String.valueOf(measurement.peakResponse()))));
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Files.write(path, lines);
+    }
+
+    // endregion
+}
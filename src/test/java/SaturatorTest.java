@@ -1,24 +1,36 @@
+import br.usp.ime.ontosat.SaturationEstimate;
 import br.usp.ime.ontosat.Saturator;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.io.UnparsableOntologyException;
-import org.semanticweb.owlapi.model.OWLOntology;
-import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.model.parameters.Imports;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SaturatorTest {
 
+    private static final String rolesNamespace = "http://www.semanticweb.org/ontosat/roles#";
+
     @Test
     public void testConstructorNullParameter() {
         Throwable exception = assertThrows(
                 NullPointerException.class,
-                () -> new Saturator(null));
+                () -> new Saturator((File) null));
 
         assertEquals("file cannot be null", exception.getMessage());
     }
@@ -62,6 +74,7 @@ public class SaturatorTest {
             "ontologies/025-test.owl,responses/025-test-saturated.owl",
             "ontologies/026-test.owl,responses/026-test-saturated.owl",
             "ontologies/027-test.owl,responses/027-test-saturated.owl",
+            "ontologies/028-test.owl,responses/028-test-saturated.owl",
             "ontologies/100-sample-cade-28.owl,responses/100-sample-cade-28-saturated.owl",
             "ontologies/101-sample-jelia-23.owl,responses/101-sample-jelia-23-saturated.owl",
     })
@@ -78,4 +91,840 @@ public class SaturatorTest {
 
         assertEquals(true, expected.getAxioms().equals(saturatedOntology.getAxioms()));
     }
+
+    @ParameterizedTest
+    @CsvSource({
+            "ontologies/001-test.owl",
+            "ontologies/014-test.owl",
+            "ontologies/027-test.owl",
+            "ontologies/100-sample-cade-28.owl",
+            "ontologies/101-sample-jelia-23.owl",
+    })
+    public void testSnapshotAfterSaturation(String ontologyResourceName, @TempDir Path tempDir)
+            throws OWLOntologyCreationException, IOException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource(ontologyResourceName).getFile());
+        File snapshotFile = tempDir.resolve("saturator.snapshot").toFile();
+
+        Saturator saturator = new Saturator(file);
+        OWLOntology saturatedOntology = saturator.saturate();
+        saturator.saveSnapshot(snapshotFile);
+
+        Saturator restored = Saturator.loadSnapshot(snapshotFile, loadOntology(file));
+
+        assertEquals(saturator.getInferredAxioms(), restored.getInferredAxioms());
+        assertEquals(saturatedOntology.getAxioms(), restored.saturate().getAxioms());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "ontologies/001-test.owl",
+            "ontologies/014-test.owl",
+            "ontologies/027-test.owl",
+            "ontologies/100-sample-cade-28.owl",
+            "ontologies/101-sample-jelia-23.owl",
+    })
+    public void testSnapshotBeforeSaturation(String ontologyResourceName, @TempDir Path tempDir)
+            throws OWLOntologyCreationException, IOException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource(ontologyResourceName).getFile());
+        File snapshotFile = tempDir.resolve("saturator.snapshot").toFile();
+
+        Saturator saturator = new Saturator(file);
+        saturator.saveSnapshot(snapshotFile);
+        OWLOntology saturatedOntology = saturator.saturate();
+
+        Saturator restored = Saturator.loadSnapshot(snapshotFile, loadOntology(file));
+
+        assertEquals(saturatedOntology.getAxioms(), restored.saturate().getAxioms());
+        assertEquals(saturator.getInferredAxioms(), restored.getInferredAxioms());
+    }
+
+    @Test
+    public void testSnapshotSavedOverLoadedSnapshot(@TempDir Path tempDir) throws OWLOntologyCreationException, IOException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource("ontologies/014-test.owl").getFile());
+        File snapshotFile = tempDir.resolve("saturator.snapshot").toFile();
+
+        Saturator saturator = new Saturator(file);
+        saturator.saveSnapshot(snapshotFile);
+        OWLOntology saturatedOntology = saturator.saturate();
+
+        // as in "-l saturator.snapshot -s saturator.snapshot"
+        Saturator restored = Saturator.loadSnapshot(snapshotFile, loadOntology(file));
+        restored.saturate();
+        restored.saveSnapshot(snapshotFile);
+
+        assertEquals(saturatedOntology.getAxioms(),
+                Saturator.loadSnapshot(snapshotFile, loadOntology(file)).saturate().getAxioms());
+        assertEquals(List.of("saturator.snapshot"), Arrays.asList(tempDir.toFile().list()));
+    }
+
+    @Test
+    public void testSnapshotOfSourceFiles(@TempDir Path tempDir) throws OWLOntologyCreationException, IOException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = tempDir.resolve("014-test.owl").toFile();
+        Files.copy(new File(classLoader.getResource("ontologies/014-test.owl").getFile()).toPath(), file.toPath());
+        File snapshotFile = tempDir.resolve("saturator.snapshot").toFile();
+        File unsourcedFile = tempDir.resolve("unsourced.snapshot").toFile();
+
+        Saturator saturator = new Saturator(file);
+        OWLOntology saturatedOntology = saturator.saturate();
+        saturator.saveSnapshot(snapshotFile, List.of(file));
+        saturator.saveSnapshot(unsourcedFile);
+
+        // without the ontology only the inferred axioms are available
+        Saturator restored = Saturator.loadSnapshot(snapshotFile, List.of(file), null);
+        assertEquals(saturator.getInferredAxioms(), restored.infer());
+        assertThrows(IllegalStateException.class, restored::saturate);
+
+        assertEquals(saturatedOntology.getAxioms(),
+                Saturator.loadSnapshot(snapshotFile, List.of(file), loadOntology(file)).saturate().getAxioms());
+        assertThrows(IOException.class, () -> Saturator.loadSnapshot(unsourcedFile, List.of(file), null));
+
+        // any change of the source file rejects the snapshot, even if it is not parsed
+        Files.write(file.toPath(), List.of("<!-- changed -->"), StandardOpenOption.APPEND);
+        assertThrows(IOException.class, () -> Saturator.loadSnapshot(snapshotFile, List.of(file), null));
+    }
+
+    @Test
+    public void testSnapshotStoresInferredAxiomsOnce(@TempDir Path tempDir) throws OWLOntologyCreationException, IOException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+        String namespace = "http://www.semanticweb.org/ontosat/chain#";
+        int length = 100;
+
+        OWLObjectProperty r = factory.getOWLObjectProperty(IRI.create(namespace + "r"));
+        OWLOntology ontology = manager.createOntology();
+        for (int i = 0; i < length; i++) {
+            OWLNamedIndividual individual = factory.getOWLNamedIndividual(IRI.create(namespace + "a" + i));
+            manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(factory.getOWLClass(IRI.create(namespace + "C" + i)), individual));
+
+            if (i + 1 < length) {
+                manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(
+                        r, individual, factory.getOWLNamedIndividual(IRI.create(namespace + "a" + (i + 1)))));
+            }
+        }
+
+        File snapshotFile = tempDir.resolve("saturator.snapshot").toFile();
+        Saturator saturator = new Saturator(ontology);
+        saturator.saturate();
+        saturator.saveSnapshot(snapshotFile);
+
+        // each class assertion takes its kind, the chain length, a property per
+        // restriction and the class; the responses of the chain nest quadratically
+        long resultBytes = 0;
+        for (OWLAxiom axiom : saturator.getInferredAxioms()) {
+            OWLClassExpression expression = ((OWLClassAssertionAxiom) axiom).getClassExpression();
+            resultBytes += 9;
+            while (expression instanceof OWLObjectSomeValuesFrom) {
+                resultBytes += 4;
+                expression = ((OWLObjectSomeValuesFrom) expression).getFiller();
+            }
+        }
+
+        assertTrue(snapshotFile.length() < resultBytes + 256L * length, snapshotFile.length() + " bytes");
+        assertEquals(saturator.getInferredAxioms(),
+                Saturator.loadSnapshot(snapshotFile, ontology).getInferredAxioms());
+    }
+
+    @Test
+    public void testSnapshotOfAnotherOntology(@TempDir Path tempDir) throws OWLOntologyCreationException, IOException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource("ontologies/014-test.owl").getFile());
+        File otherFile = new File(classLoader.getResource("ontologies/100-sample-cade-28.owl").getFile());
+        File snapshotFile = tempDir.resolve("saturator.snapshot").toFile();
+
+        new Saturator(file).saveSnapshot(snapshotFile);
+        OWLOntology otherOntology = loadOntology(otherFile);
+
+        assertThrows(IOException.class, () -> Saturator.loadSnapshot(snapshotFile, otherOntology));
+    }
+
+    @Test
+    public void testSnapshotOfChangedAssertions(@TempDir Path tempDir) throws OWLOntologyCreationException, IOException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource("ontologies/014-test.owl").getFile());
+        File snapshotFile = tempDir.resolve("saturator.snapshot").toFile();
+
+        new Saturator(file).saveSnapshot(snapshotFile);
+
+        // same individuals, one more class assertion
+        OWLOntology ontology = loadOntology(file);
+        OWLDataFactory factory = ontology.getOWLOntologyManager().getOWLDataFactory();
+        OWLNamedIndividual individual = ontology.getIndividualsInSignature().iterator().next();
+        ontology.getOWLOntologyManager().addAxiom(ontology, factory.getOWLClassAssertionAxiom(
+                factory.getOWLClass(IRI.create("http://www.semanticweb.org/ontosat/changed#C")), individual));
+
+        assertThrows(IOException.class, () -> Saturator.loadSnapshot(snapshotFile, ontology));
+        assertEquals(new Saturator(file).saturate().getAxioms(),
+                Saturator.loadSnapshot(snapshotFile, loadOntology(file)).saturate().getAxioms());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            // saturation mode
+            "8,1,127",
+            // number of named individuals
+            "26,4,-1",
+            // number of named individuals, larger than the file
+            "26,4,1000000",
+            // truncated file
+            "-1,0,0",
+    })
+    public void testCorruptedSnapshot(long offset, int length, int value, @TempDir Path tempDir)
+            throws OWLOntologyCreationException, IOException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource("ontologies/014-test.owl").getFile());
+        File snapshotFile = tempDir.resolve("saturator.snapshot").toFile();
+
+        Saturator saturator = new Saturator(file);
+        saturator.saturate();
+        saturator.saveSnapshot(snapshotFile);
+
+        try (RandomAccessFile snapshot = new RandomAccessFile(snapshotFile, "rw")) {
+            if (offset < 0) {
+                snapshot.setLength(snapshot.length() / 2);
+            } else {
+                snapshot.seek(offset);
+                if (length == 1) {
+                    snapshot.writeByte(value);
+                } else {
+                    snapshot.writeInt(value);
+                }
+            }
+        }
+
+        OWLOntology ontology = loadOntology(file);
+        assertThrows(IOException.class, () -> Saturator.loadSnapshot(snapshotFile, ontology));
+    }
+
+    @Test
+    public void testSnapshotWithAnonymousIndividuals(@TempDir Path tempDir)
+            throws OWLOntologyCreationException, IOException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+        String namespace = "http://www.semanticweb.org/ontosat/anonymous#";
+
+        OWLObjectProperty r = factory.getOWLObjectProperty(IRI.create(namespace + "r"));
+        OWLObjectProperty s = factory.getOWLObjectProperty(IRI.create(namespace + "s"));
+        OWLClass classA = factory.getOWLClass(IRI.create(namespace + "A"));
+        OWLNamedIndividual a = factory.getOWLNamedIndividual(IRI.create(namespace + "a"));
+        OWLNamedIndividual b = factory.getOWLNamedIndividual(IRI.create(namespace + "b"));
+        OWLAnonymousIndividual x = factory.getOWLAnonymousIndividual();
+
+        OWLOntology ontology = manager.createOntology();
+        manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(r, a, x));
+        manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(classA, x));
+        manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(s, b, a));
+
+        File beforeFile = tempDir.resolve("before.snapshot").toFile();
+        File afterFile = tempDir.resolve("after.snapshot").toFile();
+
+        Saturator saturator = new Saturator(ontology);
+        saturator.saveSnapshot(beforeFile);
+        saturator.saturate();
+        saturator.saveSnapshot(afterFile);
+
+        Saturator restored = Saturator.loadSnapshot(beforeFile, ontology);
+        restored.saturate();
+
+        assertTrue(saturator.getInferredAxioms().contains(factory.getOWLClassAssertionAxiom(
+                factory.getOWLObjectSomeValuesFrom(s, factory.getOWLObjectSomeValuesFrom(r, classA)), b)));
+        assertEquals(saturator.getInferredAxioms(), restored.getInferredAxioms());
+        assertEquals(saturator.getInferredAxioms(), Saturator.loadSnapshot(afterFile, ontology).getInferredAxioms());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "ontologies/001-test.owl",
+            "ontologies/006-test.owl",
+            "ontologies/014-test.owl",
+            "ontologies/020-test.owl",
+            "ontologies/027-test.owl",
+            "ontologies/100-sample-cade-28.owl",
+            "ontologies/101-sample-jelia-23.owl",
+    })
+    public void testEstimateBoundsSaturation(String ontologyResourceName) throws OWLOntologyCreationException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource(ontologyResourceName).getFile());
+
+        Saturator saturator = new Saturator(file);
+        SaturationEstimate estimate = saturator.estimate();
+        saturator.saturate();
+
+        int maxDepth = 0;
+        for (OWLAxiom axiom : saturator.getInferredAxioms()) {
+            int depth = 0;
+            OWLClassExpression expression = ((OWLClassAssertionAxiom) axiom).getClassExpression();
+
+            while (expression instanceof OWLObjectSomeValuesFrom) {
+                expression = ((OWLObjectSomeValuesFrom) expression).getFiller();
+                depth++;
+            }
+
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        assertTrue(estimate.getTotalAxioms() >= saturator.getInferredAxioms().size());
+        assertEquals(maxDepth, estimate.getMaxDepth());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "ontologies/004-test.owl",
+            "ontologies/006-test.owl",
+            "ontologies/011-test.owl",
+            "ontologies/017-test.owl",
+            "ontologies/018-test.owl",
+            "ontologies/019-test.owl",
+            "ontologies/020-test.owl",
+            "ontologies/021-test.owl",
+            "ontologies/022-test.owl",
+            "ontologies/023-test.owl",
+            "ontologies/024-test.owl",
+            "ontologies/026-test.owl",
+            "ontologies/028-test.owl",
+            "ontologies/100-sample-cade-28.owl",
+    })
+    public void testEstimateIsExact(String ontologyResourceName) throws OWLOntologyCreationException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource(ontologyResourceName).getFile());
+
+        Saturator saturator = new Saturator(file);
+        SaturationEstimate estimate = saturator.estimate();
+        saturator.saturate();
+
+        assertTrue(estimate.isExact());
+        assertEquals(saturator.getInferredAxioms().size(), estimate.getTotalAxioms());
+        assertAxiomsPerIndividual(saturator, estimate);
+    }
+
+    @Test
+    public void testEstimateDeduplicatesNeighbours() throws OWLOntologyCreationException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+        String namespace = "http://www.semanticweb.org/ontosat/fanout#";
+
+        OWLObjectProperty r = factory.getOWLObjectProperty(IRI.create(namespace + "r"));
+        OWLObjectProperty s = factory.getOWLObjectProperty(IRI.create(namespace + "s"));
+        OWLClass classC = factory.getOWLClass(IRI.create(namespace + "C"));
+        OWLClass classD = factory.getOWLClass(IRI.create(namespace + "D"));
+        OWLNamedIndividual a = factory.getOWLNamedIndividual(IRI.create(namespace + "a"));
+
+        // r(a,b_i), C(b_i), s(b_i,d_i) and D(d_i), where every b_i derives the same restriction
+        OWLOntology ontology = manager.createOntology();
+        for (int i = 0; i < 100; i++) {
+            OWLNamedIndividual b = factory.getOWLNamedIndividual(IRI.create(namespace + "b" + i));
+            OWLNamedIndividual d = factory.getOWLNamedIndividual(IRI.create(namespace + "d" + i));
+
+            manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(r, a, b));
+            manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(classC, b));
+            manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(s, b, d));
+            manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(classD, d));
+        }
+
+        Saturator saturator = new Saturator(ontology);
+        SaturationEstimate estimate = saturator.estimate();
+        saturator.saturate();
+
+        assertEquals(2L, estimate.getAxiomsPerIndividual().get(a));
+        assertEquals(102, estimate.getTotalAxioms());
+        assertEquals(saturator.getInferredAxioms().size(), estimate.getTotalAxioms());
+        assertAxiomsPerIndividual(saturator, estimate);
+    }
+
+    @Test
+    public void testEstimateCountsSharedSubtreesOnce() throws OWLOntologyCreationException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+        String namespace = "http://www.semanticweb.org/ontosat/fanin#";
+
+        OWLObjectProperty r = factory.getOWLObjectProperty(IRI.create(namespace + "r"));
+        OWLObjectProperty s = factory.getOWLObjectProperty(IRI.create(namespace + "s"));
+        OWLObjectProperty q = factory.getOWLObjectProperty(IRI.create(namespace + "q"));
+        OWLNamedIndividual a = factory.getOWLNamedIndividual(IRI.create(namespace + "a"));
+        OWLNamedIndividual w = factory.getOWLNamedIndividual(IRI.create(namespace + "w"));
+
+        // r(a,y_i), s(y_i,z_i), C_i(z_i) and s(y_i,w), where w has 50 neighbours of distinct classes
+        OWLOntology ontology = manager.createOntology();
+        for (int i = 0; i < 50; i++) {
+            OWLNamedIndividual v = factory.getOWLNamedIndividual(IRI.create(namespace + "v" + i));
+
+            manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(q, w, v));
+            manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(
+                    factory.getOWLClass(IRI.create(namespace + "D" + i)), v));
+        }
+        for (int i = 0; i < 100; i++) {
+            OWLNamedIndividual y = factory.getOWLNamedIndividual(IRI.create(namespace + "y" + i));
+            OWLNamedIndividual z = factory.getOWLNamedIndividual(IRI.create(namespace + "z" + i));
+
+            manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(r, a, y));
+            manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(s, y, z));
+            manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(s, y, w));
+            manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(
+                    factory.getOWLClass(IRI.create(namespace + "C" + i)), z));
+        }
+
+        Saturator saturator = new Saturator(ontology);
+        SaturationEstimate estimate = saturator.estimate();
+        saturator.saturate();
+
+        // a gets r.Thing, r.s.Thing, r.s.C_i for each i and r.s.q.D_j once for each j
+        assertEquals(152L, estimate.getAxiomsPerIndividual().get(a));
+        assertEquals(5402, estimate.getTotalAxioms());
+        assertEquals(saturator.getInferredAxioms().size(), estimate.getTotalAxioms());
+        assertAxiomsPerIndividual(saturator, estimate);
+    }
+
+    @Test
+    public void testEstimateOverBudget() throws OWLOntologyCreationException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+        String namespace = "http://www.semanticweb.org/ontosat/chain#";
+        int length = 50000;
+
+        OWLObjectProperty r = factory.getOWLObjectProperty(IRI.create(namespace + "r"));
+        List<OWLNamedIndividual> chain = new ArrayList<>();
+        for (int i = 0; i < length; i++) {
+            chain.add(factory.getOWLNamedIndividual(IRI.create(namespace + "a" + i)));
+        }
+
+        // r(a_i,a_i+1) and C_i(a_i), where a_i derives length - 1 - i distinct restrictions,
+        // so counting them one by one would take about length^2 / 2 ids
+        Set<OWLAxiom> axioms = new HashSet<>();
+        for (int i = 0; i < length; i++) {
+            axioms.add(factory.getOWLClassAssertionAxiom(factory.getOWLClass(IRI.create(namespace + "C" + i)), chain.get(i)));
+            if (i + 1 < length) {
+                axioms.add(factory.getOWLObjectPropertyAssertionAxiom(r, chain.get(i), chain.get(i + 1)));
+            }
+        }
+
+        OWLOntology ontology = manager.createOntology();
+        manager.addAxioms(ontology, axioms);
+
+        SaturationEstimate estimate = new Saturator(ontology).estimate();
+
+        assertFalse(estimate.isExact());
+        assertEquals((long) length * (length - 1) / 2, estimate.getTotalAxioms());
+        assertEquals(length - 1, estimate.getAxiomsPerIndividual().get(chain.get(0)));
+        assertEquals(length - 1, estimate.getMaxDepth());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "ontologies/006-test.owl",
+            "ontologies/020-test.owl",
+            "ontologies/100-sample-cade-28.owl",
+    })
+    public void testEstimateBoundOverBudget(String ontologyResourceName) throws OWLOntologyCreationException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource(ontologyResourceName).getFile());
+
+        Saturator saturator = new Saturator(file);
+        SaturationEstimate exact = saturator.estimate();
+        SaturationEstimate bound = saturator.estimate(0);
+
+        assertFalse(bound.isExact());
+        assertTrue(bound.getTotalAxioms() >= exact.getTotalAxioms());
+        assertTrue(bound.getTotalRestrictions() >= exact.getTotalRestrictions());
+        assertEquals(exact.getMaxDepth(), bound.getMaxDepth());
+        exact.getAxiomsPerIndividual().forEach((individual, axioms) ->
+                assertTrue(bound.getAxiomsPerIndividual().get(individual) >= axioms, individual.toString()));
+    }
+
+    @Test
+    public void testEstimateWithAnonymousIndividuals() throws OWLOntologyCreationException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+        String namespace = "http://www.semanticweb.org/ontosat/anonymous#";
+
+        OWLObjectProperty r = factory.getOWLObjectProperty(IRI.create(namespace + "r"));
+        OWLObjectProperty s = factory.getOWLObjectProperty(IRI.create(namespace + "s"));
+        OWLClass classA = factory.getOWLClass(IRI.create(namespace + "A"));
+        OWLNamedIndividual a = factory.getOWLNamedIndividual(IRI.create(namespace + "a"));
+        OWLNamedIndividual b = factory.getOWLNamedIndividual(IRI.create(namespace + "b"));
+        OWLAnonymousIndividual x = factory.getOWLAnonymousIndividual();
+        OWLAnonymousIndividual y = factory.getOWLAnonymousIndividual();
+
+        OWLOntology ontology = manager.createOntology();
+        manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(r, a, x));
+        manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(classA, x));
+        manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(s, b, a));
+        manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(s, b, y));
+
+        Saturator saturator = new Saturator(ontology);
+        SaturationEstimate estimate = saturator.estimate();
+        saturator.saturate();
+
+        assertEquals(saturator.getInferredAxioms().size(), estimate.getTotalAxioms());
+        assertEquals(2, estimate.getMaxDepth());
+    }
+
+    @Test
+    public void testRoleHierarchyAndInverses() throws OWLOntologyCreationException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+
+        OWLObjectProperty r = roleProperty(factory, "r");
+        OWLObjectProperty s = roleProperty(factory, "s");
+        OWLObjectProperty t = roleProperty(factory, "t");
+        OWLClass classA = roleClass(factory, "A");
+        OWLClass classB = roleClass(factory, "B");
+        OWLNamedIndividual a = roleIndividual(factory, "a");
+        OWLNamedIndividual b = roleIndividual(factory, "b");
+
+        OWLOntology ontology = manager.createOntology();
+        manager.addAxiom(ontology, factory.getOWLSubObjectPropertyOfAxiom(r, s));
+        manager.addAxiom(ontology, factory.getOWLInverseObjectPropertiesAxiom(r, t));
+        manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(r, a, b));
+        manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(classA, a));
+        manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(classB, b));
+
+        Saturator saturator = new Saturator(ontology);
+        saturator.saturate();
+
+        assertTrue(saturator.getInferredAxioms().contains(factory.getOWLClassAssertionAxiom(
+                factory.getOWLObjectSomeValuesFrom(r, classB), a)));
+        assertTrue(saturator.getInferredAxioms().contains(factory.getOWLClassAssertionAxiom(
+                factory.getOWLObjectSomeValuesFrom(s, classB), a)));
+        assertTrue(saturator.getInferredAxioms().contains(factory.getOWLClassAssertionAxiom(
+                factory.getOWLObjectSomeValuesFrom(t, classA), b)));
+    }
+
+    @Test
+    public void testRedundantInverseRoleMatchesMaterializedAssertions() throws OWLOntologyCreationException {
+        OWLDataFactory factory = OWLManager.getOWLDataFactory();
+
+        OWLObjectProperty r = roleProperty(factory, "r");
+        OWLObjectProperty t = roleProperty(factory, "t");
+        OWLClass classA = roleClass(factory, "A");
+        OWLNamedIndividual a = roleIndividual(factory, "a");
+        OWLNamedIndividual b = roleIndividual(factory, "b");
+
+        // r(a,b) and t(b,a) are both asserted, so the inverse axiom adds no edge
+        Set<OWLAxiom> assertions = Set.of(
+                factory.getOWLObjectPropertyAssertionAxiom(r, a, b),
+                factory.getOWLObjectPropertyAssertionAxiom(t, b, a),
+                factory.getOWLClassAssertionAxiom(classA, a),
+                factory.getOWLClassAssertionAxiom(roleClass(factory, "B"), b));
+
+        OWLOntology materialized = createOntology(assertions);
+        OWLOntology ontology = createOntology(assertions);
+        ontology.getOWLOntologyManager().addAxiom(ontology, factory.getOWLInverseObjectPropertiesAxiom(r, t));
+
+        Saturator saturator = new Saturator(ontology);
+        saturator.saturate();
+
+        Saturator expected = new Saturator(materialized);
+        expected.saturate();
+
+        assertTrue(saturator.getInferredAxioms().contains(factory.getOWLClassAssertionAxiom(
+                factory.getOWLObjectSomeValuesFrom(r, factory.getOWLObjectSomeValuesFrom(t, classA)), a)));
+        assertEquals(expected.getInferredAxioms(), saturator.getInferredAxioms());
+    }
+
+    /**
+     * With inverse roles every related pair is a cycle, and the nested restrictions depend
+     * on where the DFS cuts the cycles, so only the restrictions built straight from the
+     * classes of the neighbours are compared with the saturation of the materialized ABox
+     */
+    @Test
+    public void testInverseRolesMatchMaterializedDirectRestrictions() throws OWLOntologyCreationException {
+        OWLDataFactory factory = OWLManager.getOWLDataFactory();
+
+        OWLObjectProperty r = roleProperty(factory, "r");
+        OWLObjectProperty s = roleProperty(factory, "s");
+        OWLObjectProperty t = roleProperty(factory, "t");
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200; i++) {
+            Set<OWLAxiom> assertions = new HashSet<>();
+            Set<OWLAxiom> materializedAssertions = new HashSet<>();
+
+            for (int j = 0; j < 6; j++) {
+                OWLNamedIndividual subject = roleIndividual(factory, "i" + random.nextInt(5));
+                OWLNamedIndividual object = roleIndividual(factory, "i" + random.nextInt(5));
+
+                // r is the inverse of t and a sub-property of s
+                if (random.nextBoolean()) {
+                    assertions.add(factory.getOWLObjectPropertyAssertionAxiom(r, subject, object));
+                    materializedAssertions.add(factory.getOWLObjectPropertyAssertionAxiom(r, subject, object));
+                    materializedAssertions.add(factory.getOWLObjectPropertyAssertionAxiom(s, subject, object));
+                    materializedAssertions.add(factory.getOWLObjectPropertyAssertionAxiom(t, object, subject));
+                } else {
+                    assertions.add(factory.getOWLObjectPropertyAssertionAxiom(t, subject, object));
+                    materializedAssertions.add(factory.getOWLObjectPropertyAssertionAxiom(t, subject, object));
+                    materializedAssertions.add(factory.getOWLObjectPropertyAssertionAxiom(r, object, subject));
+                    materializedAssertions.add(factory.getOWLObjectPropertyAssertionAxiom(s, object, subject));
+                }
+            }
+
+            for (int j = 0; j < 3; j++) {
+                OWLAxiom classAssertion = factory.getOWLClassAssertionAxiom(
+                        roleClass(factory, "C" + random.nextInt(3)), roleIndividual(factory, "i" + random.nextInt(5)));
+                assertions.add(classAssertion);
+                materializedAssertions.add(classAssertion);
+            }
+
+            OWLOntology ontology = createOntology(assertions);
+            ontology.getOWLOntologyManager().addAxiom(ontology, factory.getOWLInverseObjectPropertiesAxiom(r, t));
+            ontology.getOWLOntologyManager().addAxiom(ontology, factory.getOWLSubObjectPropertyOfAxiom(r, s));
+
+            Saturator saturator = new Saturator(ontology);
+            saturator.saturate();
+
+            Saturator expected = new Saturator(createOntology(materializedAssertions));
+            expected.saturate();
+
+            assertEquals(getDirectRestrictions(expected.getInferredAxioms()),
+                    getDirectRestrictions(saturator.getInferredAxioms()), "case " + i + ": " + assertions);
+        }
+    }
+
+    @Test
+    public void testRoleAxiomsFromImports() throws OWLOntologyCreationException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+        OWLOntology roleOntology = createRoleOntology();
+
+        // the same ontology, with the role axioms moved to an imported TBox
+        IRI tboxIRI = IRI.create(rolesNamespace + "tbox");
+        OWLOntology tbox = manager.createOntology(tboxIRI);
+        OWLOntology abox = manager.createOntology();
+        manager.addAxioms(tbox, roleOntology.getRBoxAxioms(Imports.EXCLUDED));
+        manager.addAxioms(abox, roleOntology.getABoxAxioms(Imports.EXCLUDED));
+        manager.applyChange(new AddImport(abox, factory.getOWLImportsDeclaration(tboxIRI)));
+
+        Saturator saturator = new Saturator(roleOntology);
+        saturator.saturate();
+
+        Saturator imported = new Saturator(abox);
+        imported.saturate();
+
+        assertEquals(saturator.getInferredAxioms(), imported.getInferredAxioms());
+    }
+
+    @Test
+    public void testInverseAssertionWithAnonymousIndividual() throws OWLOntologyCreationException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+
+        OWLObjectProperty r = roleProperty(factory, "r");
+        OWLObjectProperty t = roleProperty(factory, "t");
+        OWLObjectProperty u = roleProperty(factory, "u");
+        OWLClass classA = roleClass(factory, "A");
+        OWLNamedIndividual a = roleIndividual(factory, "a");
+        OWLAnonymousIndividual x = factory.getOWLAnonymousIndividual();
+        OWLAnonymousIndividual y = factory.getOWLAnonymousIndividual();
+
+        // inverse(r)(a,x) gives r(x,a), hence t(a,x); inverse(u)(a,y) gives nothing for a
+        OWLOntology ontology = manager.createOntology();
+        manager.addAxiom(ontology, factory.getOWLInverseObjectPropertiesAxiom(r, t));
+        manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(factory.getOWLObjectInverseOf(r), a, x));
+        manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(factory.getOWLObjectInverseOf(u), a, y));
+        manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(classA, x));
+        manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(classA, y));
+
+        Saturator saturator = new Saturator(ontology);
+        SaturationEstimate estimate = saturator.estimate();
+        saturator.saturate();
+
+        assertEquals(Set.of(factory.getOWLClassAssertionAxiom(factory.getOWLObjectSomeValuesFrom(t, classA), a)),
+                saturator.getInferredAxioms());
+        assertEquals(1, estimate.getTotalAxioms());
+    }
+
+    @Test
+    public void testAssertionWithAnonymousSubject() throws OWLOntologyCreationException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+
+        OWLObjectProperty r = roleProperty(factory, "r");
+        OWLObjectProperty t = roleProperty(factory, "t");
+        OWLObjectProperty u = roleProperty(factory, "u");
+        OWLClass classA = roleClass(factory, "A");
+        OWLNamedIndividual a = roleIndividual(factory, "a");
+        OWLAnonymousIndividual x = factory.getOWLAnonymousIndividual();
+        OWLAnonymousIndividual y = factory.getOWLAnonymousIndividual();
+
+        // r(x,a) is the same assertion as inverse(r)(a,x), so it also gives t(a,x)
+        OWLOntology ontology = manager.createOntology();
+        manager.addAxiom(ontology, factory.getOWLInverseObjectPropertiesAxiom(r, t));
+        manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(r, x, a));
+        manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(u, y, a));
+        manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(classA, x));
+        manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(classA, y));
+
+        Saturator saturator = new Saturator(ontology);
+        SaturationEstimate estimate = saturator.estimate();
+        saturator.saturate();
+
+        assertEquals(Set.of(factory.getOWLClassAssertionAxiom(factory.getOWLObjectSomeValuesFrom(t, classA), a)),
+                saturator.getInferredAxioms());
+        assertEquals(1, estimate.getTotalAxioms());
+    }
+
+    @Test
+    public void testEquivalentAndSymmetricProperties() throws OWLOntologyCreationException {
+        OWLDataFactory factory = OWLManager.getOWLDataFactory();
+
+        Saturator saturator = new Saturator(createRoleOntology());
+        saturator.saturate();
+
+        Set<OWLAxiom> inferredAxioms = saturator.getInferredAxioms();
+        assertTrue(inferredAxioms.contains(factory.getOWLClassAssertionAxiom(
+                factory.getOWLObjectSomeValuesFrom(roleProperty(factory, "e"), roleClass(factory, "B")), roleIndividual(factory, "a"))));
+        assertTrue(inferredAxioms.contains(factory.getOWLClassAssertionAxiom(
+                factory.getOWLObjectSomeValuesFrom(roleProperty(factory, "q"), roleClass(factory, "C")), roleIndividual(factory, "b"))));
+        assertTrue(inferredAxioms.contains(factory.getOWLClassAssertionAxiom(
+                factory.getOWLObjectSomeValuesFrom(roleProperty(factory, "q"), roleClass(factory, "B")), roleIndividual(factory, "c"))));
+        assertTrue(inferredAxioms.contains(factory.getOWLClassAssertionAxiom(
+                factory.getOWLObjectSomeValuesFrom(roleProperty(factory, "t"), roleClass(factory, "A")), roleIndividual(factory, "b"))));
+    }
+
+    @Test
+    public void testEstimateWithRoleHierarchy() throws OWLOntologyCreationException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+
+        OWLObjectProperty r = roleProperty(factory, "r");
+        OWLObjectProperty s = roleProperty(factory, "s");
+        OWLObjectProperty e = roleProperty(factory, "e");
+        OWLObjectProperty p = roleProperty(factory, "p");
+        OWLClass classB = roleClass(factory, "B");
+        OWLClass classC = roleClass(factory, "C");
+        OWLNamedIndividual a = roleIndividual(factory, "a");
+        OWLNamedIndividual b = roleIndividual(factory, "b");
+        OWLNamedIndividual c = roleIndividual(factory, "c");
+
+        // without inverses the graph stays acyclic, so the estimate is exact
+        OWLOntology ontology = manager.createOntology();
+        manager.addAxiom(ontology, factory.getOWLSubObjectPropertyOfAxiom(r, s));
+        manager.addAxiom(ontology, factory.getOWLEquivalentObjectPropertiesAxiom(s, e));
+        manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(r, a, b));
+        manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(p, b, c));
+        manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(classB, b));
+        manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(classC, c));
+
+        Saturator saturator = new Saturator(ontology);
+        SaturationEstimate estimate = saturator.estimate();
+        saturator.saturate();
+
+        // r, s and e each give a restriction on B and one on the restriction of b
+        assertEquals(7, saturator.getInferredAxioms().size());
+        assertEquals(saturator.getInferredAxioms().size(), estimate.getTotalAxioms());
+        assertAxiomsPerIndividual(saturator, estimate);
+    }
+
+    @Test
+    public void testEstimateWithInverseRoles() throws OWLOntologyCreationException {
+        Saturator saturator = new Saturator(createRoleOntology());
+        SaturationEstimate estimate = saturator.estimate();
+        saturator.saturate();
+
+        // the estimator follows the edges implied by inverse roles like the saturator
+        assertEquals(saturator.getInferredAxioms().size(), estimate.getTotalAxioms());
+        assertAxiomsPerIndividual(saturator, estimate);
+    }
+
+    @Test
+    public void testSnapshotWithRoles(@TempDir Path tempDir) throws OWLOntologyCreationException, IOException {
+        OWLOntology ontology = createRoleOntology();
+        File beforeFile = tempDir.resolve("before.snapshot").toFile();
+        File afterFile = tempDir.resolve("after.snapshot").toFile();
+
+        Saturator saturator = new Saturator(ontology);
+        saturator.saveSnapshot(beforeFile);
+        OWLOntology saturatedOntology = saturator.saturate();
+        saturator.saveSnapshot(afterFile);
+
+        Saturator before = Saturator.loadSnapshot(beforeFile, ontology);
+        assertEquals(saturatedOntology.getAxioms(), before.saturate().getAxioms());
+        assertEquals(saturator.getInferredAxioms(), before.getInferredAxioms());
+
+        Saturator after = Saturator.loadSnapshot(afterFile, ontology);
+        assertEquals(saturator.getInferredAxioms(), after.getInferredAxioms());
+        assertEquals(saturatedOntology.getAxioms(), after.saturate().getAxioms());
+    }
+
+    /**
+     * Creates an ABox whose roles use every kind of role axiom: <b>r</b> is a sub-property
+     * of <b>s</b>, which is equivalent to <b>e</b>, <b>t</b> is the inverse of <b>r</b> and
+     * <b>q</b> is symmetric
+     */
+    private static OWLOntology createRoleOntology() throws OWLOntologyCreationException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+
+        OWLObjectProperty r = roleProperty(factory, "r");
+        OWLObjectProperty s = roleProperty(factory, "s");
+        OWLObjectProperty t = roleProperty(factory, "t");
+        OWLObjectProperty e = roleProperty(factory, "e");
+        OWLObjectProperty q = roleProperty(factory, "q");
+        OWLNamedIndividual a = roleIndividual(factory, "a");
+        OWLNamedIndividual b = roleIndividual(factory, "b");
+        OWLNamedIndividual c = roleIndividual(factory, "c");
+
+        OWLOntology ontology = manager.createOntology();
+        manager.addAxiom(ontology, factory.getOWLSubObjectPropertyOfAxiom(r, s));
+        manager.addAxiom(ontology, factory.getOWLEquivalentObjectPropertiesAxiom(s, e));
+        manager.addAxiom(ontology, factory.getOWLInverseObjectPropertiesAxiom(r, t));
+        manager.addAxiom(ontology, factory.getOWLSymmetricObjectPropertyAxiom(q));
+        manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(r, a, b));
+        manager.addAxiom(ontology, factory.getOWLObjectPropertyAssertionAxiom(q, b, c));
+        manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(roleClass(factory, "A"), a));
+        manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(roleClass(factory, "B"), b));
+        manager.addAxiom(ontology, factory.getOWLClassAssertionAxiom(roleClass(factory, "C"), c));
+
+        return ontology;
+    }
+
+    private static OWLOntology createOntology(Set<OWLAxiom> axioms) throws OWLOntologyCreationException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLOntology ontology = manager.createOntology();
+        manager.addAxioms(ontology, axioms);
+
+        return ontology;
+    }
+
+    /**
+     * @return The class assertions of a single restriction <b>"r some C"</b> with a named class C
+     */
+    private static Set<OWLAxiom> getDirectRestrictions(Set<OWLAxiom> axioms) {
+        Set<OWLAxiom> restrictions = new HashSet<>();
+        for (OWLAxiom axiom : axioms) {
+            OWLClassExpression expression = ((OWLClassAssertionAxiom) axiom).getClassExpression();
+            if (expression instanceof OWLObjectSomeValuesFrom restriction && !restriction.getFiller().isAnonymous()) {
+                restrictions.add(axiom);
+            }
+        }
+        return restrictions;
+    }
+
+    private static OWLObjectProperty roleProperty(OWLDataFactory factory, String name) {
+        return factory.getOWLObjectProperty(IRI.create(rolesNamespace + name));
+    }
+
+    private static OWLClass roleClass(OWLDataFactory factory, String name) {
+        return factory.getOWLClass(IRI.create(rolesNamespace + name));
+    }
+
+    private static OWLNamedIndividual roleIndividual(OWLDataFactory factory, String name) {
+        return factory.getOWLNamedIndividual(IRI.create(rolesNamespace + name));
+    }
+
+    private static void assertAxiomsPerIndividual(Saturator saturator, SaturationEstimate estimate) {
+        Map<OWLIndividual, Long> axiomsPerIndividual = new HashMap<>();
+        for (OWLAxiom axiom : saturator.getInferredAxioms()) {
+            axiomsPerIndividual.merge(((OWLClassAssertionAxiom) axiom).getIndividual(), 1L, Long::sum);
+        }
+
+        estimate.getAxiomsPerIndividual().forEach((individual, axioms) ->
+                assertEquals(axiomsPerIndividual.getOrDefault(individual, 0L), axioms, individual.toString()));
+    }
+
+    private OWLOntology loadOntology(File file) throws OWLOntologyCreationException {
+        return OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(file);
+    }
 }
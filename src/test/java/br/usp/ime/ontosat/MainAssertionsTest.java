@@ -0,0 +1,61 @@
+package br.usp.ime.ontosat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MainAssertionsTest {
+
+    private static final String namespace = "http://www.semanticweb.org/davys/ontologies/2024/6/ontology-test/";
+
+    @Test
+    public void testInvalidAssertionsAreRejected(@TempDir Path tempDir) throws OWLOntologyCreationException, IOException {
+        OWLOntology ontology = OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(getOntologyFile());
+        OWLDataFactory factory = ontology.getOWLOntologyManager().getOWLDataFactory();
+
+        Path assertionsFile = tempDir.resolve("assertions.txt");
+        Files.write(assertionsFile, List.of("b Type: A", "this is not an axiom"));
+
+        assertThrows(IOException.class, () -> Main.addAssertions(ontology, assertionsFile.toFile()));
+
+        // the valid line is still added, so the ontology must not be saturated
+        assertTrue(ontology.containsAxiom(factory.getOWLClassAssertionAxiom(
+                factory.getOWLClass(IRI.create(namespace + "A")),
+                factory.getOWLNamedIndividual(IRI.create(namespace + "b")))));
+    }
+
+    @Test
+    public void testInvalidAssertionsAbortTheRun(@TempDir Path tempDir) throws IOException {
+        String ontologyPath = getOntologyFile().getPath();
+
+        Path validFile = tempDir.resolve("valid.txt");
+        Files.write(validFile, List.of("b Type: A"));
+        Path validOutput = tempDir.resolve("valid-saturated.owl");
+
+        Path invalidFile = tempDir.resolve("invalid.txt");
+        Files.write(invalidFile, List.of("b Type: A", "this is not an axiom"));
+        Path invalidOutput = tempDir.resolve("invalid-saturated.owl");
+
+        Main.main(new String[] { "-i", ontologyPath, "-a", validFile.toString(), "-o", validOutput.toString() });
+        Main.main(new String[] { "-i", ontologyPath, "-a", invalidFile.toString(), "-o", invalidOutput.toString() });
+
+        assertTrue(Files.exists(validOutput));
+        assertFalse(Files.exists(invalidOutput));
+    }
+
+    private File getOntologyFile() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        return new File(classLoader.getResource("ontologies/005-test.owl").getFile());
+    }
+}
@@ -0,0 +1,98 @@
+package br.usp.ime.ontosat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SaturatorShardingTest {
+
+    private static final String namespace = "http://www.semanticweb.org/ontosat/sharding#";
+
+    @ParameterizedTest
+    @ValueSource(ints = { 2, 3, 8 })
+    public void testShardedGraphMatchesSequentialGraph(int shardCount) throws OWLOntologyCreationException {
+        OWLOntology ontology = createOntology(3000);
+
+        Saturator sequential = new Saturator(ontology, 1);
+        Saturator sharded = new Saturator(ontology, shardCount);
+
+        assertEquals(sequential.getGraph(), sharded.getGraph());
+        assertEquals(sequential.getClassIndex(), sharded.getClassIndex());
+
+        // the edges of each individual are also inserted in the same order
+        sequential.getGraph().forEach((individual, edges) -> assertEquals(
+                new ArrayList<>(edges.keySet()),
+                new ArrayList<>(sharded.getGraph().get(individual).keySet())));
+    }
+
+    @Test
+    public void testShardedSaturationMatchesSequentialSaturation() throws OWLOntologyCreationException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource("ontologies/101-sample-jelia-23.owl").getFile());
+        OWLOntology ontology = OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(file);
+
+        Saturator sequential = new Saturator(ontology, 1);
+        Saturator sharded = new Saturator(ontology, 4);
+
+        assertEquals(sequential.saturate().getAxioms(), sharded.saturate().getAxioms());
+    }
+
+    /**
+     * Creates an ABox with random role and class assertions, some of them relating
+     * the same pair of individuals through different properties
+     */
+    private static OWLOntology createOntology(int individualCount) throws OWLOntologyCreationException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+        Random random = new Random(42);
+
+        List<OWLNamedIndividual> individuals = new ArrayList<>();
+        for (int i = 0; i < individualCount; i++) {
+            individuals.add(factory.getOWLNamedIndividual(IRI.create(namespace + "i" + i)));
+        }
+
+        List<OWLObjectProperty> properties = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            properties.add(factory.getOWLObjectProperty(IRI.create(namespace + "r" + i)));
+        }
+
+        List<OWLClass> classes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            classes.add(factory.getOWLClass(IRI.create(namespace + "C" + i)));
+        }
+
+        OWLOntology ontology = manager.createOntology();
+        List<OWLAxiom> axioms = new ArrayList<>();
+
+        for (OWLNamedIndividual subject : individuals) {
+            for (int i = 0; i < 3; i++) {
+                OWLNamedIndividual object = individuals.get(random.nextInt(individualCount));
+                axioms.add(factory.getOWLObjectPropertyAssertionAxiom(
+                        properties.get(random.nextInt(properties.size())), subject, object));
+
+                if (random.nextInt(4) == 0) {
+                    axioms.add(factory.getOWLObjectPropertyAssertionAxiom(
+                            properties.get(random.nextInt(properties.size())), subject, object));
+                }
+            }
+
+            if (random.nextInt(3) > 0) {
+                for (int i = 0; i < 2; i++) {
+                    axioms.add(factory.getOWLClassAssertionAxiom(classes.get(random.nextInt(classes.size())), subject));
+                }
+            }
+        }
+
+        manager.addAxioms(ontology, axioms);
+        return ontology;
+    }
+}